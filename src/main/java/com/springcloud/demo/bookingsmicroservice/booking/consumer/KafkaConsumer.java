@@ -1,7 +1,9 @@
 package com.springcloud.demo.bookingsmicroservice.booking.consumer;
 
 import com.springcloud.demo.bookingsmicroservice.booking.dto.PublishBookingEventDTO;
+import com.springcloud.demo.bookingsmicroservice.booking.dto.RoomUpdatedEventDTO;
 import com.springcloud.demo.bookingsmicroservice.booking.service.BookingService;
+import com.springcloud.demo.bookingsmicroservice.booking.service.RoomOwnershipService;
 import com.springcloud.demo.bookingsmicroservice.utils.JsonUtils;
 import lombok.RequiredArgsConstructor;
 import org.springframework.kafka.annotation.KafkaListener;
@@ -12,10 +14,17 @@ import org.springframework.stereotype.Service;
 public class KafkaConsumer {
 
     private final BookingService bookingService;
+    private final RoomOwnershipService roomOwnershipService;
 
     @KafkaListener(topics = "${spring.kafka.topics.BOOKING_RECEIPT_GENERATED_TOPIC}")
     public void updateReceiptUrlEvent(String bookingJson){
         PublishBookingEventDTO booking = JsonUtils.fromJson(bookingJson, PublishBookingEventDTO.class);
         bookingService.updateReceiptUrl(booking);
     }
+
+    @KafkaListener(topics = "${spring.kafka.topics.ROOM_UPDATED_TOPIC}")
+    public void updateRoomOwnerEvent(String roomJson){
+        RoomUpdatedEventDTO room = JsonUtils.fromJson(roomJson, RoomUpdatedEventDTO.class);
+        roomOwnershipService.update(room);
+    }
 }
@@ -2,12 +2,15 @@ package com.springcloud.demo.bookingsmicroservice.booking.controller;
 
 import com.springcloud.demo.bookingsmicroservice.booking.dto.*;
 import com.springcloud.demo.bookingsmicroservice.booking.service.BookingService;
+import io.swagger.v3.oas.annotations.Operation;
 import jakarta.validation.Valid;
 import lombok.RequiredArgsConstructor;
 import org.hibernate.validator.constraints.UUID;
+import org.springframework.format.annotation.DateTimeFormat;
 import org.springframework.http.HttpStatus;
 import org.springframework.web.bind.annotation.*;
 
+import java.time.LocalDate;
 import java.util.List;
 
 @RestController
@@ -33,6 +36,26 @@ public class BookingController {
         return bookingService.findById(id);
     }
 
+    @PostMapping("/availability/search")
+    AvailableRoomsDTO searchAvailability(@Valid @RequestBody SearchAvailabilityDTO searchAvailabilityDTO) {
+        return bookingService.searchAvailability(searchAvailabilityDTO);
+    }
+
+    @Operation(
+            summary = "Available days of a room",
+            description = "Served from a per-instance calendar. Bookings created or cancelled through another instance "
+                    + "can take up to bookings.calendar.max-age (30s by default) to show up; use /availability/search "
+                    + "for an up to date answer before booking"
+    )
+    @GetMapping("/rooms/{roomId}/availability")
+    RoomAvailabilityDTO findRoomAvailability(
+            @PathVariable @UUID String roomId,
+            @RequestParam @DateTimeFormat(iso = DateTimeFormat.ISO.DATE) LocalDate from,
+            @RequestParam @DateTimeFormat(iso = DateTimeFormat.ISO.DATE) LocalDate to
+    ) {
+        return bookingService.findRoomAvailability(roomId, from, to);
+    }
+
     @PatchMapping("/{id}/status")
     ResponseBookingDTO updateStatus(
             @PathVariable @UUID String id,
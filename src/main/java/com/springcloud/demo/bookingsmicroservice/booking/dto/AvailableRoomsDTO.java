@@ -0,0 +1,19 @@
+package com.springcloud.demo.bookingsmicroservice.booking.dto;
+
+import lombok.AllArgsConstructor;
+import lombok.Builder;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import java.util.List;
+import java.util.UUID;
+
+@Data
+@Builder
+@NoArgsConstructor
+@AllArgsConstructor
+public class AvailableRoomsDTO {
+    private String checkIn;
+    private String checkOut;
+    private List<UUID> roomIds;
+}
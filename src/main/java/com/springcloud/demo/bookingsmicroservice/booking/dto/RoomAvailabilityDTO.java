@@ -0,0 +1,20 @@
+package com.springcloud.demo.bookingsmicroservice.booking.dto;
+
+import lombok.AllArgsConstructor;
+import lombok.Builder;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import java.util.List;
+import java.util.UUID;
+
+@Data
+@Builder
+@NoArgsConstructor
+@AllArgsConstructor
+public class RoomAvailabilityDTO {
+    private UUID roomId;
+    private String from;
+    private String to;
+    private List<String> availableDays;
+}
@@ -0,0 +1,137 @@
+package com.springcloud.demo.bookingsmicroservice.booking.event;
+
+import com.springcloud.demo.bookingsmicroservice.booking.dto.PublishBookingEventDTO;
+import com.springcloud.demo.bookingsmicroservice.client.rooms.dto.RoomDTO;
+import com.springcloud.demo.bookingsmicroservice.client.users.UserClientImpl;
+import com.springcloud.demo.bookingsmicroservice.client.users.UserDTO;
+import com.springcloud.demo.bookingsmicroservice.exceptions.InheritedException;
+import com.springcloud.demo.bookingsmicroservice.messaging.MessagingProducer;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import jakarta.annotation.PreDestroy;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+import java.time.Duration;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ScheduledThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Enriches booking created events with the booker and the room owner from users-ms and publishes them to
+ * BOOKING_CREATED_TOPIC on a bounded pool. Failed attempts are retried with exponential backoff;
+ * client errors (4xx from users-ms) are not retried. When the backlog is full the caller publishes itself.
+ * The returned future completes once the event is published, or exceptionally when it is given up.
+ */
+@Slf4j
+@Component
+public class BookingEventPipeline {
+
+    private static final int MAX_BACKOFF_SHIFT = 10;
+
+    private final UserClientImpl userClient;
+    private final MessagingProducer messagingProducer;
+    private final MeterRegistry meterRegistry;
+    private final String bookingCreatedTopic;
+    private final int capacity;
+    private final int maxAttempts;
+    private final Duration retryBackoff;
+    private final ScheduledThreadPoolExecutor executor;
+
+    private final AtomicInteger backlog = new AtomicInteger();
+
+    public BookingEventPipeline(
+            UserClientImpl userClient,
+            MessagingProducer messagingProducer,
+            MeterRegistry meterRegistry,
+            @Value("${spring.kafka.topics.BOOKING_CREATED_TOPIC}") String bookingCreatedTopic,
+            @Value("${bookings.events.pool-size:4}") int poolSize,
+            @Value("${bookings.events.capacity:10000}") int capacity,
+            @Value("${bookings.events.max-attempts:5}") int maxAttempts,
+            @Value("${bookings.events.retry-backoff:PT0.5S}") Duration retryBackoff
+    ) {
+        this.userClient = userClient;
+        this.messagingProducer = messagingProducer;
+        this.meterRegistry = meterRegistry;
+        this.bookingCreatedTopic = bookingCreatedTopic;
+        this.capacity = capacity;
+        this.maxAttempts = maxAttempts;
+        this.retryBackoff = retryBackoff;
+
+        AtomicInteger threads = new AtomicInteger();
+        this.executor = new ScheduledThreadPoolExecutor(poolSize, runnable -> {
+            Thread thread = new Thread(runnable, "booking-events-" + threads.incrementAndGet());
+            thread.setDaemon(true);
+            return thread;
+        });
+
+        Gauge.builder("bookings.events.backlog", backlog, AtomicInteger::get).register(meterRegistry);
+    }
+
+    /**
+     * The event carries the room without owner and a user with only its id, as stored in the outbox
+     */
+    public CompletableFuture<Void> submit(PublishBookingEventDTO event) {
+        CompletableFuture<Void> published = new CompletableFuture<>();
+        if (backlog.incrementAndGet() > capacity) {
+            meterRegistry.counter("bookings.events.overflow").increment();
+            publish(event, published, 1);
+        } else {
+            executor.execute(() -> publish(event, published, 1));
+        }
+        return published;
+    }
+
+    @PreDestroy
+    public void shutdown() throws InterruptedException {
+        executor.shutdown();
+        if (!executor.awaitTermination(5, TimeUnit.SECONDS)) {
+            log.warn("{} booking events not published on shutdown", backlog.get());
+            executor.shutdownNow();
+        }
+    }
+
+    private void publish(PublishBookingEventDTO event, CompletableFuture<Void> published, int attempt) {
+        try {
+            // Each attempt enriches a copy, so a retry still looks up the ids stored in the outbox
+            UserDTO user = userClient.findById(event.getUser().getId().toString());
+            RoomDTO room = event.getRoom().toBuilder()
+                    .owner(userClient.findById(event.getRoom().getOwnerId()))
+                    .build();
+            PublishBookingEventDTO enriched = event.toBuilder().user(user).room(room).build();
+
+            // Keyed by room. OutboxRelay submits the events of a room one at a time, so they reach its partition in order
+            String key = room.getId().toString();
+            messagingProducer.sendMessage(bookingCreatedTopic, key, enriched).whenComplete((result, e) -> {
+                if (e == null) {
+                    backlog.decrementAndGet();
+                    published.complete(null);
+                } else {
+                    retryOrGiveUp(event, published, attempt, e);
+                }
+            });
+        } catch (RuntimeException e) {
+            retryOrGiveUp(event, published, attempt, e);
+        }
+    }
+
+    private void retryOrGiveUp(PublishBookingEventDTO event, CompletableFuture<Void> published, int attempt, Throwable e) {
+        if (attempt >= maxAttempts || isClientError(e)) {
+            backlog.decrementAndGet();
+            meterRegistry.counter("bookings.events.failures").increment();
+            log.error("Booking created event of {} not published after {} attempts", event.getId(), attempt, e);
+            published.completeExceptionally(e);
+            return;
+        }
+
+        meterRegistry.counter("bookings.events.retries").increment();
+        long delay = retryBackoff.toMillis() << Math.min(attempt - 1, MAX_BACKOFF_SHIFT);
+        executor.schedule(() -> publish(event, published, attempt + 1), delay, TimeUnit.MILLISECONDS);
+    }
+
+    private static boolean isClientError(Throwable e) {
+        return e instanceof InheritedException inherited && inherited.getStatus() < 500;
+    }
+}
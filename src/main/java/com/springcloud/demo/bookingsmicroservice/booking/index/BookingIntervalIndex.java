@@ -0,0 +1,134 @@
+package com.springcloud.demo.bookingsmicroservice.booking.index;
+
+import com.springcloud.demo.bookingsmicroservice.booking.model.Booking;
+import com.springcloud.demo.bookingsmicroservice.booking.model.BookingStatus;
+import com.springcloud.demo.bookingsmicroservice.booking.repository.BookingRepository;
+import lombok.RequiredArgsConstructor;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+
+import java.time.OffsetDateTime;
+import java.util.List;
+import java.util.Map;
+import java.util.Queue;
+import java.util.UUID;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.locks.ReadWriteLock;
+import java.util.concurrent.locks.ReentrantReadWriteLock;
+
+/**
+ * In-memory index of active (BOOKED) bookings per room and per user, as seen by this instance. Neither a hit
+ * nor a miss is authoritative: bookings created or cancelled on other instances only show up on the next
+ * rebuild, so both must be confirmed against the database.
+ */
+@Component
+@RequiredArgsConstructor
+public class BookingIntervalIndex {
+
+    private final BookingRepository bookingRepository;
+
+    private final ReadWriteLock swapLock = new ReentrantReadWriteLock();
+
+    private volatile Map<UUID, IntervalSet> rooms = new ConcurrentHashMap<>();
+    private volatile Map<UUID, IntervalSet> users = new ConcurrentHashMap<>();
+    private volatile Queue<Booking> trackedDuringRebuild;
+
+    @EventListener(ApplicationReadyEvent.class)
+    public void warmUp() {
+        rebuild();
+    }
+
+    /**
+     * Reload periodically to drop bookings cancelled or created by other instances. Bookings tracked while
+     * the snapshot is loaded may be missing from it, so they are applied again before the maps are swapped.
+     */
+    @Scheduled(
+            initialDelayString = "${bookings.index.refresh-interval:PT10M}",
+            fixedDelayString = "${bookings.index.refresh-interval:PT10M}"
+    )
+    public synchronized void rebuild() {
+        trackedDuringRebuild = new ConcurrentLinkedQueue<>();
+        try {
+            List<Booking> activeBookings = bookingRepository.findByStatusAndCheckOutAfter(BookingStatus.BOOKED, OffsetDateTime.now());
+
+            Map<UUID, IntervalSet> newRooms = new ConcurrentHashMap<>();
+            Map<UUID, IntervalSet> newUsers = new ConcurrentHashMap<>();
+            activeBookings.forEach(booking -> apply(newRooms, newUsers, booking));
+
+            swapLock.writeLock().lock();
+            try {
+                trackedDuringRebuild.forEach(booking -> apply(newRooms, newUsers, booking));
+                rooms = newRooms;
+                users = newUsers;
+            } finally {
+                swapLock.writeLock().unlock();
+            }
+        } finally {
+            trackedDuringRebuild = null;
+        }
+    }
+
+    public boolean hasRoomConflict(UUID roomId, OffsetDateTime checkIn, OffsetDateTime checkOut) {
+        return hasConflict(rooms, roomId, checkIn, checkOut);
+    }
+
+    public boolean hasUserConflict(UUID userId, OffsetDateTime checkIn, OffsetDateTime checkOut) {
+        return hasConflict(users, userId, checkIn, checkOut);
+    }
+
+    /**
+     * Add the booking while it is BOOKED and remove it for any other status
+     */
+    public void track(Booking booking) {
+        swapLock.readLock().lock();
+        try {
+            apply(rooms, users, booking);
+            Queue<Booking> tracked = trackedDuringRebuild;
+            if (tracked != null) {
+                tracked.add(booking);
+            }
+        } finally {
+            swapLock.readLock().unlock();
+        }
+    }
+
+    private void apply(Map<UUID, IntervalSet> rooms, Map<UUID, IntervalSet> users, Booking booking) {
+        if (booking.getStatus() == BookingStatus.BOOKED) {
+            add(rooms, booking.getRoomId(), booking);
+            add(users, booking.getUserId(), booking);
+        } else {
+            remove(rooms, booking.getRoomId(), booking.getId());
+            remove(users, booking.getUserId(), booking.getId());
+        }
+    }
+
+    private boolean hasConflict(Map<UUID, IntervalSet> index, UUID key, OffsetDateTime checkIn, OffsetDateTime checkOut) {
+        IntervalSet intervals = index.get(key);
+        if (intervals == null) {
+            return false;
+        }
+        return intervals.findOverlap(toEpochMillis(checkIn), toEpochMillis(checkOut)).isPresent();
+    }
+
+    private void add(Map<UUID, IntervalSet> index, UUID key, Booking booking) {
+        index.compute(key, (k, intervals) -> {
+            IntervalSet target = intervals == null ? new IntervalSet() : intervals;
+            target.add(booking.getId(), toEpochMillis(booking.getCheckIn()), toEpochMillis(booking.getCheckOut()));
+            return target;
+        });
+    }
+
+    private void remove(Map<UUID, IntervalSet> index, UUID key, UUID bookingId) {
+        index.computeIfPresent(key, (k, intervals) -> {
+            intervals.remove(bookingId);
+            return intervals.isEmpty() ? null : intervals;
+        });
+    }
+
+    private static long toEpochMillis(OffsetDateTime dateTime) {
+        return dateTime.toInstant().toEpochMilli();
+    }
+}
@@ -0,0 +1,58 @@
+package com.springcloud.demo.bookingsmicroservice.booking.index;
+
+import java.util.BitSet;
+import java.util.HashMap;
+import java.util.Map;
+
+/**
+ * Sparse bitmap of epoch days split in 4096-day containers (roaring style): only containers with
+ * at least one day set are allocated, each one as 64 words.
+ */
+class DayBitmap {
+
+    private static final int CONTAINER_BITS = 12;
+    private static final long CONTAINER_MASK = (1L << CONTAINER_BITS) - 1;
+    private static final int WORDS_PER_CONTAINER = (1 << CONTAINER_BITS) / Long.SIZE;
+
+    private final Map<Long, long[]> containers = new HashMap<>();
+
+    synchronized void set(long fromDay, long toDay) {
+        for (long day = fromDay; day < toDay; day++) {
+            long[] words = containers.computeIfAbsent(day >> CONTAINER_BITS, k -> new long[WORDS_PER_CONTAINER]);
+            int bit = (int) (day & CONTAINER_MASK);
+            words[bit >>> 6] |= 1L << bit;
+        }
+    }
+
+    /**
+     * Days set in [fromDay, toDay), relative to fromDay. Empty containers and words are skipped whole.
+     */
+    synchronized BitSet get(long fromDay, long toDay) {
+        BitSet result = new BitSet((int) (toDay - fromDay));
+        long day = fromDay;
+
+        while (day < toDay) {
+            long key = day >> CONTAINER_BITS;
+            long limit = Math.min((key + 1) << CONTAINER_BITS, toDay);
+            long[] words = containers.get(key);
+            if (words == null) {
+                day = limit;
+                continue;
+            }
+
+            while (day < limit) {
+                int bit = (int) (day & CONTAINER_MASK);
+                long word = words[bit >>> 6] >>> bit;
+                if (word == 0) {
+                    day += Long.SIZE - (bit & 63);
+                    continue;
+                }
+                if ((word & 1L) != 0) {
+                    result.set((int) (day - fromDay));
+                }
+                day++;
+            }
+        }
+        return result;
+    }
+}
@@ -0,0 +1,62 @@
+package com.springcloud.demo.bookingsmicroservice.booking.index;
+
+import java.util.*;
+
+/**
+ * Half-open intervals [start, end) ordered by start. Tracks the longest interval stored so overlap
+ * lookups only walk the entries that can still reach the requested range.
+ */
+class IntervalSet {
+
+    private static final UUID LOWEST_ID = new UUID(Long.MIN_VALUE, Long.MIN_VALUE);
+
+    private static final Comparator<Interval> BY_START = Comparator
+            .comparingLong(Interval::start)
+            .thenComparing(Interval::bookingId);
+
+    private final NavigableSet<Interval> intervals = new TreeSet<>(BY_START);
+    private final Map<UUID, Interval> byBookingId = new HashMap<>();
+    private long maxLength;
+
+    synchronized void add(UUID bookingId, long start, long end) {
+        remove(bookingId);
+
+        Interval interval = new Interval(bookingId, start, end);
+        intervals.add(interval);
+        byBookingId.put(bookingId, interval);
+        maxLength = Math.max(maxLength, end - start);
+    }
+
+    synchronized boolean remove(UUID bookingId) {
+        Interval interval = byBookingId.remove(bookingId);
+        if (interval == null) {
+            return false;
+        }
+        intervals.remove(interval);
+        return true;
+    }
+
+    synchronized Optional<UUID> findOverlap(long start, long end) {
+        Iterator<Interval> candidates = intervals
+                .headSet(new Interval(LOWEST_ID, end, end), false)
+                .descendingIterator();
+
+        while (candidates.hasNext()) {
+            Interval candidate = candidates.next();
+            if (candidate.start() + maxLength <= start) {
+                break;
+            }
+            if (candidate.end() > start) {
+                return Optional.of(candidate.bookingId());
+            }
+        }
+        return Optional.empty();
+    }
+
+    synchronized boolean isEmpty() {
+        return intervals.isEmpty();
+    }
+
+    record Interval(UUID bookingId, long start, long end) {
+    }
+}
@@ -0,0 +1,93 @@
+package com.springcloud.demo.bookingsmicroservice.booking.index;
+
+import com.github.benmanes.caffeine.cache.Cache;
+import com.github.benmanes.caffeine.cache.Caffeine;
+import com.springcloud.demo.bookingsmicroservice.booking.model.Booking;
+import com.springcloud.demo.bookingsmicroservice.booking.model.BookingStatus;
+import com.springcloud.demo.bookingsmicroservice.booking.repository.BookingRepository;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+import java.time.Duration;
+import java.time.LocalDate;
+import java.time.OffsetDateTime;
+import java.util.ArrayList;
+import java.util.BitSet;
+import java.util.List;
+import java.util.UUID;
+
+/**
+ * Per-room bitmap of occupied nights (UTC days from check-in up to check-out), loaded from the database on
+ * first use and kept for max-age. Bookings changed on this instance are applied right away; bookings created
+ * or cancelled on other instances show up once the entry expires, so answers are at most max-age stale.
+ */
+@Component
+public class RoomAvailabilityCalendar {
+
+    private static final long MILLIS_PER_DAY = 86_400_000L;
+
+    private final BookingRepository bookingRepository;
+    private final Cache<UUID, DayBitmap> rooms;
+
+    public RoomAvailabilityCalendar(
+            BookingRepository bookingRepository,
+            @Value("${bookings.calendar.max-age:PT30S}") Duration maxAge,
+            @Value("${bookings.calendar.max-size:10000}") long maxSize
+    ) {
+        this.bookingRepository = bookingRepository;
+        this.rooms = Caffeine.newBuilder()
+                .expireAfterWrite(maxAge)
+                .maximumSize(maxSize)
+                .build();
+    }
+
+    public List<LocalDate> findAvailableDays(UUID roomId, LocalDate from, LocalDate to) {
+        long fromDay = from.toEpochDay();
+        long toDay = to.toEpochDay() + 1;
+
+        BitSet occupied = rooms.get(roomId, this::load).get(fromDay, toDay);
+
+        List<LocalDate> availableDays = new ArrayList<>();
+        for (int i = occupied.nextClearBit(0); i < toDay - fromDay; i = occupied.nextClearBit(i + 1)) {
+            availableDays.add(from.plusDays(i));
+        }
+        return availableDays;
+    }
+
+    /**
+     * A cancelled booking drops the room so its remaining bookings are reloaded on the next lookup
+     */
+    public void track(Booking booking) {
+        if (booking.getStatus() != BookingStatus.BOOKED) {
+            rooms.invalidate(booking.getRoomId());
+            return;
+        }
+
+        long start = booking.getCheckIn().toInstant().toEpochMilli();
+        long end = booking.getCheckOut().toInstant().toEpochMilli();
+        rooms.asMap().computeIfPresent(booking.getRoomId(), (roomId, bitmap) -> {
+            occupy(bitmap, start, end);
+            return bitmap;
+        });
+    }
+
+    private DayBitmap load(UUID roomId) {
+        DayBitmap bitmap = new DayBitmap();
+        bookingRepository
+                .findByRoomIdAndStatusAndCheckOutAfter(roomId, BookingStatus.BOOKED, OffsetDateTime.now())
+                .forEach(booking -> occupy(bitmap, booking.getCheckIn().toInstant().toEpochMilli(), booking.getCheckOut().toInstant().toEpochMilli()));
+        return bitmap;
+    }
+
+    private static void occupy(DayBitmap bitmap, long start, long end) {
+        bitmap.set(firstDay(start), lastDayExclusive(start, end));
+    }
+
+    private static long firstDay(long start) {
+        return Math.floorDiv(start, MILLIS_PER_DAY);
+    }
+
+    private static long lastDayExclusive(long start, long end) {
+        return Math.max(Math.floorDiv(end, MILLIS_PER_DAY), firstDay(start) + 1);
+    }
+}
@@ -0,0 +1,75 @@
+package com.springcloud.demo.bookingsmicroservice.booking.lock;
+
+import com.springcloud.demo.bookingsmicroservice.exceptions.ConflictException;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.dao.PessimisticLockingFailureException;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.time.Duration;
+import java.util.UUID;
+import java.util.concurrent.TimeUnit;
+import java.util.function.Supplier;
+
+/**
+ * Postgres transaction-scoped advisory locks keyed by room and user id hash, so creates are serialized
+ * across every instance of the service. The action runs in the same transaction that holds the locks.
+ */
+@Component
+@ConditionalOnProperty(name = "bookings.locks.mode", havingValue = "advisory")
+public class AdvisoryBookingLocks implements BookingLocks {
+
+    private static final int ROOM_LOCK_CLASS = 1;
+    private static final int USER_LOCK_CLASS = 2;
+
+    private final JdbcTemplate jdbcTemplate;
+    private final TransactionTemplate transactionTemplate;
+    private final Duration timeout;
+    private final Timer waitTimer;
+    private final Counter timeoutCounter;
+
+    public AdvisoryBookingLocks(
+            JdbcTemplate jdbcTemplate,
+            TransactionTemplate transactionTemplate,
+            MeterRegistry meterRegistry,
+            @Value("${bookings.locks.timeout:PT5S}") Duration timeout
+    ) {
+        this.jdbcTemplate = jdbcTemplate;
+        this.transactionTemplate = transactionTemplate;
+        this.timeout = timeout;
+        this.waitTimer = Timer.builder("bookings.create.lock.wait")
+                .tag("mode", "advisory")
+                .register(meterRegistry);
+        this.timeoutCounter = Counter.builder("bookings.create.lock.timeouts")
+                .tag("mode", "advisory")
+                .register(meterRegistry);
+    }
+
+    @Override
+    public <T> T withLocks(UUID roomId, UUID userId, Supplier<T> action) {
+        return transactionTemplate.execute(status -> {
+            long start = System.nanoTime();
+            try {
+                jdbcTemplate.queryForObject("SELECT set_config('lock_timeout', ?, true)", String.class, timeout.toMillis() + "ms");
+                // Every create takes the room lock before the user lock, so two creates can't wait on each other
+                lock(ROOM_LOCK_CLASS, roomId);
+                lock(USER_LOCK_CLASS, userId);
+            } catch (PessimisticLockingFailureException e) {
+                timeoutCounter.increment();
+                throw new ConflictException("Too many bookings in progress for this room. Try later");
+            } finally {
+                waitTimer.record(System.nanoTime() - start, TimeUnit.NANOSECONDS);
+            }
+            return action.get();
+        });
+    }
+
+    private void lock(int lockClass, UUID id) {
+        jdbcTemplate.queryForList("SELECT pg_advisory_xact_lock(?, ?)", lockClass, id.hashCode());
+    }
+}
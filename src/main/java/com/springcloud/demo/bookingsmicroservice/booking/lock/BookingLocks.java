@@ -0,0 +1,11 @@
+package com.springcloud.demo.bookingsmicroservice.booking.lock;
+
+import java.util.UUID;
+import java.util.function.Supplier;
+
+/**
+ * Serializes creates that may conflict: the action runs while holding the locks of the room and the user
+ */
+public interface BookingLocks {
+    <T> T withLocks(UUID roomId, UUID userId, Supplier<T> action);
+}
@@ -0,0 +1,42 @@
+package com.springcloud.demo.bookingsmicroservice.booking.lock;
+
+import com.springcloud.demo.bookingsmicroservice.exceptions.ConflictException;
+import io.micrometer.core.instrument.MeterRegistry;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.orm.ObjectOptimisticLockingFailureException;
+import org.springframework.stereotype.Component;
+
+import java.util.function.Supplier;
+
+/**
+ * Retries a read-modify-write when another writer bumped the booking version in between.
+ * The action must re-read the booking on every attempt.
+ */
+@Component
+public class OptimisticLockRetry {
+
+    private final MeterRegistry meterRegistry;
+    private final int maxAttempts;
+
+    public OptimisticLockRetry(
+            MeterRegistry meterRegistry,
+            @Value("${bookings.optimistic-lock.max-attempts:3}") int maxAttempts
+    ) {
+        this.meterRegistry = meterRegistry;
+        this.maxAttempts = maxAttempts;
+    }
+
+    public <T> T execute(String operation, Supplier<T> action) {
+        for (int attempt = 1; ; attempt++) {
+            try {
+                return action.get();
+            } catch (ObjectOptimisticLockingFailureException e) {
+                if (attempt >= maxAttempts) {
+                    meterRegistry.counter("bookings.optimistic_lock.failures", "operation", operation).increment();
+                    throw new ConflictException("Booking was modified concurrently. Try later");
+                }
+                meterRegistry.counter("bookings.optimistic_lock.retries", "operation", operation).increment();
+            }
+        }
+    }
+}
@@ -0,0 +1,92 @@
+package com.springcloud.demo.bookingsmicroservice.booking.lock;
+
+import com.springcloud.demo.bookingsmicroservice.exceptions.ConflictException;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.stereotype.Component;
+
+import java.time.Duration;
+import java.util.UUID;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.locks.ReentrantLock;
+import java.util.function.Supplier;
+
+/**
+ * In-JVM locks striped by room and user id. Unrelated rooms map to different stripes and proceed in parallel.
+ * Only serializes creates within one instance, see {@link AdvisoryBookingLocks} for multi-instance deployments.
+ */
+@Component
+@ConditionalOnProperty(name = "bookings.locks.mode", havingValue = "local", matchIfMissing = true)
+public class StripedBookingLocks implements BookingLocks {
+
+    private final ReentrantLock[] stripes;
+    private final Duration timeout;
+    private final Timer waitTimer;
+    private final Counter timeoutCounter;
+
+    public StripedBookingLocks(
+            MeterRegistry meterRegistry,
+            @Value("${bookings.locks.stripes:1024}") int stripes,
+            @Value("${bookings.locks.timeout:PT5S}") Duration timeout
+    ) {
+        this.stripes = new ReentrantLock[stripes];
+        for (int i = 0; i < stripes; i++) {
+            this.stripes[i] = new ReentrantLock();
+        }
+        this.timeout = timeout;
+        this.waitTimer = Timer.builder("bookings.create.lock.wait")
+                .tag("mode", "local")
+                .register(meterRegistry);
+        this.timeoutCounter = Counter.builder("bookings.create.lock.timeouts")
+                .tag("mode", "local")
+                .register(meterRegistry);
+    }
+
+    @Override
+    public <T> T withLocks(UUID roomId, UUID userId, Supplier<T> action) {
+        int roomStripe = stripeOf(roomId);
+        int userStripe = stripeOf(userId);
+
+        // Always lock the lower stripe first so two creates can't wait on each other
+        ReentrantLock first = stripes[Math.min(roomStripe, userStripe)];
+        ReentrantLock second = stripes[Math.max(roomStripe, userStripe)];
+
+        long start = System.nanoTime();
+        acquire(first);
+        try {
+            if (second != first) {
+                acquire(second);
+            }
+            waitTimer.record(System.nanoTime() - start, TimeUnit.NANOSECONDS);
+            try {
+                return action.get();
+            } finally {
+                if (second != first) {
+                    second.unlock();
+                }
+            }
+        } finally {
+            first.unlock();
+        }
+    }
+
+    private void acquire(ReentrantLock lock) {
+        try {
+            if (!lock.tryLock(timeout.toMillis(), TimeUnit.MILLISECONDS)) {
+                timeoutCounter.increment();
+                throw new ConflictException("Too many bookings in progress for this room. Try later");
+            }
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new ConflictException("Too many bookings in progress for this room. Try later");
+        }
+    }
+
+    private int stripeOf(UUID id) {
+        int hash = id.hashCode();
+        return Math.floorMod(hash ^ (hash >>> 16), stripes.length);
+    }
+}
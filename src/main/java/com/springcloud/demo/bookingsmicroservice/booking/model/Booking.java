@@ -45,4 +45,7 @@ public class Booking {
     private Integer rating;
 
     private String review;
+
+    @Version
+    private Long version;
 }
@@ -0,0 +1,31 @@
+package com.springcloud.demo.bookingsmicroservice.booking.model;
+
+import jakarta.persistence.*;
+import lombok.*;
+import org.hibernate.annotations.UpdateTimestamp;
+
+import java.time.OffsetDateTime;
+import java.util.UUID;
+
+/**
+ * Local projection of room ownership, so permission checks do not need to call rooms-ms
+ */
+@Entity
+@Table(name = "room_owners")
+@Getter
+@Setter
+@Builder
+@AllArgsConstructor
+@NoArgsConstructor
+public class RoomOwner {
+    @Id
+    @Column(name = "room_id")
+    private UUID roomId;
+
+    @Column(name = "owner_id")
+    private String ownerId;
+
+    @UpdateTimestamp
+    @Column(name = "updated_at")
+    private OffsetDateTime updatedAt;
+}
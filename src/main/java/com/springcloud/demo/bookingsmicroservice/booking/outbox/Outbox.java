@@ -0,0 +1,33 @@
+package com.springcloud.demo.bookingsmicroservice.booking.outbox;
+
+import com.springcloud.demo.bookingsmicroservice.utils.JsonUtils;
+import lombok.RequiredArgsConstructor;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.annotation.Propagation;
+import org.springframework.transaction.annotation.Transactional;
+
+import java.util.UUID;
+
+/**
+ * Records events in the transaction that changes the booking, so they are published by {@link OutboxRelay}
+ * if and only if that transaction commits
+ */
+@Component
+@RequiredArgsConstructor
+public class Outbox {
+
+    private final OutboxEventRepository outboxEventRepository;
+
+    /**
+     * Events with the same messageKey are published in the order they were added
+     */
+    @Transactional(propagation = Propagation.MANDATORY)
+    public void add(OutboxEventType eventType, UUID aggregateId, String messageKey, Object payload) {
+        outboxEventRepository.save(OutboxEvent.builder()
+                .eventType(eventType)
+                .aggregateId(aggregateId)
+                .messageKey(messageKey)
+                .payload(JsonUtils.toJson(payload))
+                .build());
+    }
+}
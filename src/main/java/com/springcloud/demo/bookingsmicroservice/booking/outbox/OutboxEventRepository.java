@@ -0,0 +1,64 @@
+package com.springcloud.demo.bookingsmicroservice.booking.outbox;
+
+import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Modifying;
+import org.springframework.data.jpa.repository.Query;
+
+import java.time.OffsetDateTime;
+import java.util.Collection;
+import java.util.List;
+
+public interface OutboxEventRepository extends JpaRepository<OutboxEvent, Long> {
+
+    /**
+     * Leases up to limit pending rows to the caller for leaseSeconds and counts the attempt. Rows leased by
+     * another relay, backing off or dead-lettered are skipped, as are rows locked by a concurrent claim.
+     * A row is also skipped while an earlier pending row with the same message key is not claimed along with it,
+     * so the rows of a key are published in order.
+     * A relay that dies while publishing leaves its rows to be claimed again once the lease expires.
+     */
+    @Query(value = """
+            WITH locked AS (
+                SELECT id, message_key FROM outbox_events
+                WHERE sent_at IS NULL AND failed_at IS NULL AND (available_at IS NULL OR available_at <= now())
+                ORDER BY id LIMIT :limit FOR UPDATE SKIP LOCKED
+            )
+            UPDATE outbox_events SET available_at = now() + :leaseSeconds * interval '1 second', attempts = attempts + 1
+            WHERE id IN (
+                SELECT l.id FROM locked l
+                WHERE NOT EXISTS (
+                    SELECT 1 FROM outbox_events p
+                    WHERE p.message_key = l.message_key AND p.id < l.id
+                      AND p.sent_at IS NULL AND p.failed_at IS NULL
+                      AND p.id NOT IN (SELECT id FROM locked)
+                )
+            )
+            RETURNING *
+            """, nativeQuery = true)
+    List<OutboxEvent> claim(int limit, long leaseSeconds);
+
+    long countBySentAtIsNullAndFailedAtIsNull();
+
+    @Modifying
+    @Query("UPDATE OutboxEvent e SET e.sentAt = :sentAt WHERE e.id IN :ids")
+    int markSent(Collection<Long> ids, OffsetDateTime sentAt);
+
+    /**
+     * Gives back claimed rows that were not attempted, without counting the attempt
+     */
+    @Modifying
+    @Query("UPDATE OutboxEvent e SET e.availableAt = null, e.attempts = e.attempts - 1 WHERE e.id IN :ids")
+    int release(Collection<Long> ids);
+
+    @Modifying
+    @Query("UPDATE OutboxEvent e SET e.lastError = :error, e.availableAt = :availableAt WHERE e.id = :id")
+    int markRetry(Long id, String error, OffsetDateTime availableAt);
+
+    @Modifying
+    @Query("UPDATE OutboxEvent e SET e.lastError = :error, e.failedAt = :failedAt WHERE e.id = :id")
+    int markFailed(Long id, String error, OffsetDateTime failedAt);
+
+    @Modifying
+    @Query("DELETE FROM OutboxEvent e WHERE e.sentAt < :sentBefore")
+    int deleteSentBefore(OffsetDateTime sentBefore);
+}
@@ -0,0 +1,6 @@
+package com.springcloud.demo.bookingsmicroservice.booking.outbox;
+
+public enum OutboxEventType {
+    BOOKING_CREATED,
+    REVIEW_CREATED
+}
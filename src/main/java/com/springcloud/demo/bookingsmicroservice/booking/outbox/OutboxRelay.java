@@ -0,0 +1,205 @@
+package com.springcloud.demo.bookingsmicroservice.booking.outbox;
+
+import com.springcloud.demo.bookingsmicroservice.booking.dto.PublishBookingEventDTO;
+import com.springcloud.demo.bookingsmicroservice.booking.dto.ResponseBookingDTO;
+import com.springcloud.demo.bookingsmicroservice.booking.event.BookingEventPipeline;
+import com.springcloud.demo.bookingsmicroservice.messaging.MessagingProducer;
+import com.springcloud.demo.bookingsmicroservice.utils.JsonUtils;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.time.Duration;
+import java.time.OffsetDateTime;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Drains outbox_events in batches. Booking created events go through {@link BookingEventPipeline} to be
+ * enriched, the rest are published as stored. A batch is claimed with a lease in one short transaction,
+ * published outside any transaction and settled in a second one: rows are marked sent once the broker
+ * acknowledged them, failed rows back off exponentially and are dead-lettered after max-attempts.
+ * Events with the same message key (the Kafka key) are published one after the other in outbox order, and a
+ * failed event holds back the later ones of its key until it is published or dead-lettered.
+ */
+@Slf4j
+@Component
+@ConditionalOnProperty(name = "bookings.outbox.relay.enabled", havingValue = "true", matchIfMissing = true)
+public class OutboxRelay {
+
+    private static final int MAX_BACKOFF_SHIFT = 10;
+    private static final int MAX_ERROR_LENGTH = 2000;
+
+    private final OutboxEventRepository outboxEventRepository;
+    private final BookingEventPipeline bookingEventPipeline;
+    private final MessagingProducer messagingProducer;
+    private final TransactionTemplate transactionTemplate;
+    private final String reviewCreatedTopic;
+    private final int batchSize;
+    private final Duration lease;
+    private final int maxAttempts;
+    private final Duration retryBackoff;
+    private final Duration retention;
+    private final MeterRegistry meterRegistry;
+    private final Timer lagTimer;
+
+    private final AtomicLong backlog = new AtomicLong();
+
+    public OutboxRelay(
+            OutboxEventRepository outboxEventRepository,
+            BookingEventPipeline bookingEventPipeline,
+            MessagingProducer messagingProducer,
+            TransactionTemplate transactionTemplate,
+            MeterRegistry meterRegistry,
+            @Value("${spring.kafka.topics.REVIEW_CREATED_TOPIC}") String reviewCreatedTopic,
+            @Value("${bookings.outbox.relay.batch-size:500}") int batchSize,
+            @Value("${bookings.outbox.relay.lease:PT5M}") Duration lease,
+            @Value("${bookings.outbox.relay.max-attempts:10}") int maxAttempts,
+            @Value("${bookings.outbox.relay.retry-backoff:PT5S}") Duration retryBackoff,
+            @Value("${bookings.outbox.retention:PT24H}") Duration retention
+    ) {
+        this.outboxEventRepository = outboxEventRepository;
+        this.bookingEventPipeline = bookingEventPipeline;
+        this.messagingProducer = messagingProducer;
+        this.transactionTemplate = transactionTemplate;
+        this.reviewCreatedTopic = reviewCreatedTopic;
+        this.batchSize = batchSize;
+        this.lease = lease;
+        this.maxAttempts = maxAttempts;
+        this.retryBackoff = retryBackoff;
+        this.retention = retention;
+        this.meterRegistry = meterRegistry;
+        this.lagTimer = Timer.builder("bookings.outbox.relay.lag")
+                .description("Time from the booking change commit to the event being published")
+                .register(meterRegistry);
+
+        Gauge.builder("bookings.outbox.backlog", backlog, AtomicLong::get).register(meterRegistry);
+    }
+
+    @Scheduled(fixedDelayString = "${bookings.outbox.relay.interval:PT1S}")
+    public void relay() {
+        int relayed;
+        do {
+            relayed = relayBatch();
+        } while (relayed == batchSize);
+
+        backlog.set(outboxEventRepository.countBySentAtIsNullAndFailedAtIsNull());
+    }
+
+    @Scheduled(
+            initialDelayString = "${bookings.outbox.cleanup-interval:PT1H}",
+            fixedDelayString = "${bookings.outbox.cleanup-interval:PT1H}"
+    )
+    public void deleteSent() {
+        transactionTemplate.executeWithoutResult(status ->
+                outboxEventRepository.deleteSentBefore(OffsetDateTime.now().minus(retention)));
+    }
+
+    /**
+     * Claims, publishes and settles one batch and returns how many rows were marked sent,
+     * or 0 when any of them failed so the run stops. The rows of a message key are published one at a time;
+     * those after a failed one are released unattempted, so claim holds them back until it is published
+     */
+    int relayBatch() {
+        List<OutboxEvent> events = transactionTemplate.execute(status ->
+                outboxEventRepository.claim(batchSize, lease.toSeconds()));
+        if (events == null || events.isEmpty()) {
+            return 0;
+        }
+
+        Map<String, List<OutboxEvent>> lanes = new LinkedHashMap<>();
+        events.forEach(event -> lanes.computeIfAbsent(laneOf(event), key -> new ArrayList<>()).add(event));
+
+        Map<OutboxEvent, CompletableFuture<Void>> publishing = new HashMap<>();
+        lanes.values().forEach(lane -> {
+            CompletableFuture<Void> previous = CompletableFuture.completedFuture(null);
+            for (OutboxEvent event : lane) {
+                previous = previous.thenCompose(ignored -> publish(event));
+                publishing.put(event, previous);
+            }
+        });
+
+        List<Long> sent = new ArrayList<>();
+        Map<OutboxEvent, Throwable> failed = new LinkedHashMap<>();
+        List<Long> held = new ArrayList<>();
+        for (List<OutboxEvent> lane : lanes.values()) {
+            boolean blocked = false;
+            for (OutboxEvent event : lane) {
+                if (blocked) {
+                    held.add(event.getId());
+                    continue;
+                }
+                try {
+                    publishing.get(event).join();
+                    sent.add(event.getId());
+                    lagTimer.record(Duration.between(event.getCreatedAt(), OffsetDateTime.now()));
+                } catch (RuntimeException e) {
+                    failed.put(event, e instanceof CompletionException && e.getCause() != null ? e.getCause() : e);
+                    blocked = true;
+                }
+            }
+        }
+
+        transactionTemplate.executeWithoutResult(status -> {
+            if (!sent.isEmpty()) {
+                outboxEventRepository.markSent(sent, OffsetDateTime.now());
+            }
+            failed.forEach(this::markFailed);
+            if (!held.isEmpty()) {
+                outboxEventRepository.release(held);
+            }
+        });
+        return failed.isEmpty() ? sent.size() : 0;
+    }
+
+    /**
+     * Rows without a message key (added before it was stored) are not ordered
+     */
+    private static String laneOf(OutboxEvent event) {
+        return event.getMessageKey() != null ? event.getMessageKey() : "id:" + event.getId();
+    }
+
+    private void markFailed(OutboxEvent event, Throwable e) {
+        String error = describe(e);
+        if (event.getAttempts() >= maxAttempts) {
+            meterRegistry.counter("bookings.outbox.dead-lettered").increment();
+            log.error("Outbox event {} dead-lettered after {} attempts", event.getId(), event.getAttempts(), e);
+            outboxEventRepository.markFailed(event.getId(), error, OffsetDateTime.now());
+            return;
+        }
+
+        Duration backoff = retryBackoff.multipliedBy(1L << Math.min(Math.max(event.getAttempts() - 1, 0), MAX_BACKOFF_SHIFT));
+        log.warn("Outbox event {} not published on attempt {}, retrying in {}", event.getId(), event.getAttempts(), backoff, e);
+        outboxEventRepository.markRetry(event.getId(), error, OffsetDateTime.now().plus(backoff));
+    }
+
+    private static String describe(Throwable e) {
+        String error = e.getClass().getName() + ": " + e.getMessage();
+        return error.length() > MAX_ERROR_LENGTH ? error.substring(0, MAX_ERROR_LENGTH) : error;
+    }
+
+    private CompletableFuture<Void> publish(OutboxEvent event) {
+        try {
+            return switch (event.getEventType()) {
+                case BOOKING_CREATED ->
+                        bookingEventPipeline.submit(JsonUtils.fromJson(event.getPayload(), PublishBookingEventDTO.class));
+                case REVIEW_CREATED ->
+                        messagingProducer.sendMessage(reviewCreatedTopic, event.getAggregateId().toString(), JsonUtils.fromJson(event.getPayload(), ResponseBookingDTO.class));
+            };
+        } catch (RuntimeException e) {
+            return CompletableFuture.failedFuture(e);
+        }
+    }
+}
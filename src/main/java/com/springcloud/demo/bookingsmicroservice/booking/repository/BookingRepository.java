@@ -1,22 +1,42 @@
 package com.springcloud.demo.bookingsmicroservice.booking.repository;
 
 import com.springcloud.demo.bookingsmicroservice.booking.model.Booking;
+import com.springcloud.demo.bookingsmicroservice.booking.model.BookingStatus;
 import org.springframework.data.jpa.repository.JpaRepository;
 import org.springframework.data.jpa.repository.JpaSpecificationExecutor;
 import org.springframework.data.jpa.repository.Query;
 
-import java.time.LocalDateTime;
 import java.time.OffsetDateTime;
+import java.util.Collection;
 import java.util.List;
 import java.util.Optional;
 import java.util.UUID;
 
 public interface BookingRepository extends JpaRepository<Booking, UUID>, JpaSpecificationExecutor<Booking> {
 
-    @Query("SELECT b FROM Booking b " +
-            "WHERE ((?1 BETWEEN b.checkIn AND b.checkOut) " +
-            "OR (?2 BETWEEN b.checkIn AND b.checkOut)) " +
+    /**
+     * Derived exists queries stop at the first overlapping row (LIMIT 1) instead of counting them all
+     */
+    default boolean existsRoomBookingInRange(UUID roomId, OffsetDateTime checkIn, OffsetDateTime checkOut) {
+        return existsByRoomIdAndStatusAndCheckInBeforeAndCheckOutAfter(roomId, BookingStatus.BOOKED, checkOut, checkIn);
+    }
+
+    default boolean existsUserBookingInRange(UUID userId, OffsetDateTime checkIn, OffsetDateTime checkOut) {
+        return existsByUserIdAndStatusAndCheckInBeforeAndCheckOutAfter(userId, BookingStatus.BOOKED, checkOut, checkIn);
+    }
+
+    boolean existsByRoomIdAndStatusAndCheckInBeforeAndCheckOutAfter(UUID roomId, BookingStatus status, OffsetDateTime checkInBefore, OffsetDateTime checkOutAfter);
+
+    boolean existsByUserIdAndStatusAndCheckInBeforeAndCheckOutAfter(UUID userId, BookingStatus status, OffsetDateTime checkInBefore, OffsetDateTime checkOutAfter);
+
+    @Query("SELECT DISTINCT b.roomId FROM Booking b " +
+            "WHERE b.roomId IN :roomIds " +
             "AND b.status = BOOKED " +
-            "AND (b.userId = ?3 OR b.roomId = ?4)")
-    Booking[] findBookingsByRange(OffsetDateTime checkIn, OffsetDateTime checkOut, UUID userId, UUID roomId);
+            "AND b.checkIn < :checkOut " +
+            "AND b.checkOut > :checkIn")
+    List<UUID> findBookedRoomIdsInRange(Collection<UUID> roomIds, OffsetDateTime checkIn, OffsetDateTime checkOut);
+
+    List<Booking> findByStatusAndCheckOutAfter(BookingStatus status, OffsetDateTime checkOut);
+
+    List<Booking> findByRoomIdAndStatusAndCheckOutAfter(UUID roomId, BookingStatus status, OffsetDateTime checkOut);
 }
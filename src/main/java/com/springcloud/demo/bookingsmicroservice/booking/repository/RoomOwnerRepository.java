@@ -0,0 +1,9 @@
+package com.springcloud.demo.bookingsmicroservice.booking.repository;
+
+import com.springcloud.demo.bookingsmicroservice.booking.model.RoomOwner;
+import org.springframework.data.jpa.repository.JpaRepository;
+
+import java.util.UUID;
+
+public interface RoomOwnerRepository extends JpaRepository<RoomOwner, UUID> {
+}
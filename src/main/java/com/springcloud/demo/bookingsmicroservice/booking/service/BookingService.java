@@ -1,66 +1,65 @@
 package com.springcloud.demo.bookingsmicroservice.booking.service;
 
 import com.springcloud.demo.bookingsmicroservice.booking.dto.*;
+import com.springcloud.demo.bookingsmicroservice.booking.index.BookingIntervalIndex;
+import com.springcloud.demo.bookingsmicroservice.booking.index.RoomAvailabilityCalendar;
+import com.springcloud.demo.bookingsmicroservice.booking.lock.BookingLocks;
+import com.springcloud.demo.bookingsmicroservice.booking.lock.OptimisticLockRetry;
 import com.springcloud.demo.bookingsmicroservice.booking.mapper.BookingMapper;
 import com.springcloud.demo.bookingsmicroservice.booking.model.Booking;
 import com.springcloud.demo.bookingsmicroservice.booking.model.BookingStatus;
+import com.springcloud.demo.bookingsmicroservice.booking.outbox.Outbox;
+import com.springcloud.demo.bookingsmicroservice.booking.outbox.OutboxEventType;
 import com.springcloud.demo.bookingsmicroservice.booking.repository.BookingRepository;
 import com.springcloud.demo.bookingsmicroservice.booking.repository.BookingSpecification;
 import com.springcloud.demo.bookingsmicroservice.client.rooms.RoomClientImpl;
+import com.springcloud.demo.bookingsmicroservice.client.rooms.StaleRoomPolicy;
 import com.springcloud.demo.bookingsmicroservice.client.rooms.dto.RoomDTO;
-import com.springcloud.demo.bookingsmicroservice.client.users.UserClientImpl;
 import com.springcloud.demo.bookingsmicroservice.client.users.UserDTO;
 import com.springcloud.demo.bookingsmicroservice.exceptions.BadRequestException;
 import com.springcloud.demo.bookingsmicroservice.exceptions.ForbiddenException;
 import com.springcloud.demo.bookingsmicroservice.exceptions.NotFoundException;
-import com.springcloud.demo.bookingsmicroservice.utils.JsonUtils;
-import com.springcloud.demo.bookingsmicroservice.messaging.MessagingProducer;
 import lombok.RequiredArgsConstructor;
-import org.springframework.beans.factory.annotation.Value;
+import org.springframework.core.NestedExceptionUtils;
+import org.springframework.dao.DataIntegrityViolationException;
 import org.springframework.data.domain.PageRequest;
 import org.springframework.data.domain.Pageable;
 import org.springframework.stereotype.Service;
+import org.springframework.transaction.support.TransactionTemplate;
 
+import java.sql.SQLException;
+import java.time.LocalDate;
 import java.time.OffsetDateTime;
+import java.time.ZoneOffset;
 import java.time.format.DateTimeParseException;
-import java.util.Arrays;
-import java.util.List;
-import java.util.Optional;
-import java.util.UUID;
+import java.time.temporal.ChronoUnit;
+import java.util.*;
+import java.util.stream.Collectors;
 
 @Service
 @RequiredArgsConstructor
 public class BookingService {
 
+    private static final String ROOM_OVERLAP_CONSTRAINT = "bookings_room_no_overlap";
+    private static final String EXCLUSION_VIOLATION_STATE = "23P01";
+    private static final int MAX_AVAILABILITY_DAYS = 366;
+
     private final BookingRepository bookingRepository;
     private final BookingSpecification bookingSpecification;
+    private final BookingIntervalIndex bookingIndex;
+    private final RoomAvailabilityCalendar roomAvailabilityCalendar;
+    private final BookingLocks bookingLocks;
+    private final OptimisticLockRetry optimisticLockRetry;
     private final RoomClientImpl roomClient;
-    private final UserClientImpl userClient;
-    private final MessagingProducer messagingProducer;
-
-    @Value("${spring.kafka.topics.BOOKING_CREATED_TOPIC}")
-    private String bookingCreatedTopic;
-
-    @Value("${spring.kafka.topics.REVIEW_CREATED_TOPIC}")
-    private String reviewCreatedTopic;
+    private final StaleRoomPolicy staleRoomPolicy;
+    private final RoomOwnershipService roomOwnershipService;
+    private final Outbox outbox;
+    private final TransactionTemplate transactionTemplate;
 
     public ResponseBookingDTO create(CreateBookingDTO createBookingDTO, String idUserLogged) {
 
-        RoomDTO room = roomClient.findById(createBookingDTO.getRoomId());
-
-        OffsetDateTime checkIn;
-        OffsetDateTime checkOut;
-
-        try {
-            checkIn = OffsetDateTime.parse(createBookingDTO.getCheckIn());
-        } catch (DateTimeParseException e) {
-            throw new BadRequestException("checkIn is not a valid date");
-        }
-        try {
-            checkOut = OffsetDateTime.parse(createBookingDTO.getCheckOut());
-        } catch (DateTimeParseException e) {
-            throw new BadRequestException("checkOut is not a valid date");
-        }
+        OffsetDateTime checkIn = parseDate(createBookingDTO.getCheckIn(), "checkIn");
+        OffsetDateTime checkOut = parseDate(createBookingDTO.getCheckOut(), "checkOut");
 
         if(checkIn.isBefore(OffsetDateTime.now())){
             throw new BadRequestException("checkIn cannot be before current time");
@@ -70,35 +69,39 @@ public class BookingService {
             throw new BadRequestException("checkIn cannot be after checkOut");
         }
 
-        Booking[] bookingsInSameRange = bookingRepository.findBookingsByRange(
-                checkIn,
-                checkOut,
-                UUID.fromString(idUserLogged),
-                UUID.fromString(createBookingDTO.getRoomId())
-        );
-
-        if (bookingsInSameRange.length > 0) {
-            Booking bookingInSameRange = bookingsInSameRange[0];
-            if (bookingInSameRange.getUserId().toString().equals(idUserLogged)) {
-                throw new ForbiddenException("User already has any booking at same time");
-            }
-            if (bookingInSameRange.getRoomId().toString().equals(createBookingDTO.getRoomId())) {
-                throw new ForbiddenException("Room already booked at same time");
-            }
-        }
-
-        UserDTO user = userClient.findById(idUserLogged);
-        UserDTO owner = userClient.findById(room.getOwnerId());
-        room.setOwner(owner);
+        UUID userId = UUID.fromString(idUserLogged);
+        UUID roomId = UUID.fromString(createBookingDTO.getRoomId());
 
-        Booking booking = BookingMapper.createBookingDtoToBooking(createBookingDTO);
-        booking.setUserId(UUID.fromString(idUserLogged));
-        booking.setCheckIn(checkIn);
-        booking.setCheckOut(checkOut);
-
-        booking = bookingRepository.save(booking);
+        // Only an index hit goes to the database before the locks, so it is rejected before any remote call once confirmed.
+        // A miss is left to the check under the locks and to bookings_room_no_overlap
+        if (bookingIndex.hasUserConflict(userId, checkIn, checkOut) || bookingIndex.hasRoomConflict(roomId, checkIn, checkOut)) {
+            checkStoredConflicts(userId, roomId, checkIn, checkOut);
+        }
 
-        messagingProducer.sendMessage(bookingCreatedTopic, JsonUtils.toJson(BookingMapper.bookingToPublishBookingDto(booking,room,user)));
+        // The booker and the owner are only needed for the created event and are looked up by bookingEventPipeline
+        RoomDTO room = roomClient.findById(createBookingDTO.getRoomId());
+        staleRoomPolicy.check(room, "create");
+
+        // The transaction commits before the locks are released, and the event is stored along with the booking
+        Booking booking = bookingLocks.withLocks(roomId, userId, () -> {
+            Booking savedBooking = transactionTemplate.execute(status -> {
+                checkStoredConflicts(userId, roomId, checkIn, checkOut);
+
+                Booking newBooking = BookingMapper.createBookingDtoToBooking(createBookingDTO);
+                newBooking.setUserId(userId);
+                newBooking.setCheckIn(checkIn);
+                newBooking.setCheckOut(checkOut);
+
+                Booking saved = saveCheckingRoomOverlap(newBooking);
+                // Booker and owner are filled in by BookingEventPipeline when the event is relayed
+                outbox.add(OutboxEventType.BOOKING_CREATED, saved.getId(), roomId.toString(),
+                        BookingMapper.bookingToPublishBookingDto(saved, room, UserDTO.builder().id(userId).build()));
+                return saved;
+            });
+            bookingIndex.track(savedBooking);
+            roomAvailabilityCalendar.track(savedBooking);
+            return savedBooking;
+        });
 
         return BookingMapper.bookingToResponseBookingDto(booking);
     }
@@ -122,6 +125,54 @@ public class BookingService {
         return BookingMapper.bookingToResponseBookingDto(booking);
     }
 
+    public AvailableRoomsDTO searchAvailability(SearchAvailabilityDTO searchAvailabilityDTO) {
+        OffsetDateTime checkIn = parseDate(searchAvailabilityDTO.getCheckIn(), "checkIn");
+        OffsetDateTime checkOut = parseDate(searchAvailabilityDTO.getCheckOut(), "checkOut");
+
+        if (checkIn.isAfter(checkOut)) {
+            throw new BadRequestException("checkIn cannot be after checkOut");
+        }
+
+        Set<UUID> candidates = searchAvailabilityDTO.getRoomIds()
+                .stream()
+                .map(UUID::fromString)
+                .collect(Collectors.toCollection(LinkedHashSet::new));
+
+        // Decided by the database alone: the local index misses bookings cancelled on other instances
+        Set<UUID> booked = candidates.isEmpty()
+                ? Set.of()
+                : Set.copyOf(bookingRepository.findBookedRoomIdsInRange(candidates, checkIn, checkOut));
+
+        return AvailableRoomsDTO
+                .builder()
+                .checkIn(checkIn.toString())
+                .checkOut(checkOut.toString())
+                .roomIds(candidates.stream().filter(roomId -> !booked.contains(roomId)).toList())
+                .build();
+    }
+
+    public RoomAvailabilityDTO findRoomAvailability(String roomId, LocalDate from, LocalDate to) {
+        if (from.isAfter(to)) {
+            throw new BadRequestException("from cannot be after to");
+        }
+        if (from.isBefore(LocalDate.now(ZoneOffset.UTC))) {
+            throw new BadRequestException("from cannot be before current date");
+        }
+        if (ChronoUnit.DAYS.between(from, to) >= MAX_AVAILABILITY_DAYS) {
+            throw new BadRequestException("Availability range cannot exceed " + MAX_AVAILABILITY_DAYS + " days");
+        }
+
+        List<LocalDate> availableDays = roomAvailabilityCalendar.findAvailableDays(UUID.fromString(roomId), from, to);
+
+        return RoomAvailabilityDTO
+                .builder()
+                .roomId(UUID.fromString(roomId))
+                .from(from.toString())
+                .to(to.toString())
+                .availableDays(availableDays.stream().map(LocalDate::toString).toList())
+                .build();
+    }
+
     public ResponseBookingDTO updateStatus(String id, UpdateStatusDTO updateStatusDTO, String idUserLogged) {
         BookingStatus validStatus;
         try {
@@ -130,54 +181,108 @@ public class BookingService {
             throw new BadRequestException(updateStatusDTO.getStatus() + " is not valid status. " + Arrays.toString(BookingStatus.values()));
         }
 
-        Booking booking = bookingRepository
-                .findById(UUID.fromString(id))
-                .orElseThrow(() -> new NotFoundException("Not found booking with id:" + id));
+        Booking updatedBooking = optimisticLockRetry.execute("updateStatus", () -> {
+            Booking booking = bookingRepository
+                    .findById(UUID.fromString(id))
+                    .orElseThrow(() -> new NotFoundException("Not found booking with id:" + id));
 
-        RoomDTO roomOfBooking = roomClient.findById(booking.getRoomId().toString());
+            String ownerId = roomOwnershipService.findOwnerId(booking.getRoomId(), "updateStatus");
 
-        if (!roomOfBooking.getOwnerId().equals(idUserLogged)) {
-            throw new ForbiddenException("Not have permission to update booking of room that belong to another user");
-        }
+            if (!ownerId.equals(idUserLogged)) {
+                throw new ForbiddenException("Not have permission to update booking of room that belong to another user");
+            }
 
-        booking.setStatus(validStatus);
+            booking.setStatus(validStatus);
 
-        booking = bookingRepository.save(booking);
+            return saveCheckingRoomOverlap(booking);
+        });
 
-        return BookingMapper.bookingToResponseBookingDto(booking);
+        bookingIndex.track(updatedBooking);
+        roomAvailabilityCalendar.track(updatedBooking);
+
+        return BookingMapper.bookingToResponseBookingDto(updatedBooking);
     }
 
     public ResponseBookingDTO review(String id, CreateReviewDTO createReviewDTO, String idUserLogged) {
-        Booking booking = bookingRepository
-                .findById(UUID.fromString(id))
-                .orElseThrow(() -> new NotFoundException("Not found booking with id:" + id));
+        Booking reviewedBooking = optimisticLockRetry.execute("review", () -> transactionTemplate.execute(status -> {
+            Booking booking = bookingRepository
+                    .findById(UUID.fromString(id))
+                    .orElseThrow(() -> new NotFoundException("Not found booking with id:" + id));
 
-        if (!booking.getUserId().toString().equals(idUserLogged)) {
-            throw new ForbiddenException("Not have permission to review booking that belong to another user");
-        }
+            if (!booking.getUserId().toString().equals(idUserLogged)) {
+                throw new ForbiddenException("Not have permission to review booking that belong to another user");
+            }
 
-        if (booking.getRating() != null) {
-            throw new ForbiddenException("Booking already reviewed");
-        }
+            if (booking.getRating() != null) {
+                throw new ForbiddenException("Booking already reviewed");
+            }
+
+            booking.setReview(createReviewDTO.getReview());
+            booking.setRating(createReviewDTO.getRating());
 
-        booking.setReview(createReviewDTO.getReview());
-        booking.setRating(createReviewDTO.getRating());
+            Booking saved = bookingRepository.save(booking);
+            outbox.add(OutboxEventType.REVIEW_CREATED, saved.getId(), saved.getId().toString(), BookingMapper.bookingToResponseBookingDto(saved));
+            return saved;
+        }));
 
-        booking = bookingRepository.save(booking);
+        return BookingMapper.bookingToResponseBookingDto(reviewedBooking);
+    }
 
-        ResponseBookingDTO responseBookingDTO = BookingMapper.bookingToResponseBookingDto(booking);
+    public void updateReceiptUrl(PublishBookingEventDTO booking) {
+        optimisticLockRetry.execute("updateReceiptUrl", () -> {
+            Optional<Booking> bookingFound = bookingRepository.findById(booking.getId());
+
+            bookingFound.ifPresent(found -> {
+                found.setReceiptUrl(booking.getReceiptUrl());
+                bookingRepository.save(found);
+            });
+            return bookingFound;
+        });
+    }
 
-        messagingProducer.sendMessage(reviewCreatedTopic, JsonUtils.toJson(responseBookingDTO));
+    private void checkStoredConflicts(UUID userId, UUID roomId, OffsetDateTime checkIn, OffsetDateTime checkOut) {
+        if (bookingRepository.existsUserBookingInRange(userId, checkIn, checkOut)) {
+            throw new ForbiddenException("User already has any booking at same time");
+        }
+        if (bookingRepository.existsRoomBookingInRange(roomId, checkIn, checkOut)) {
+            throw new ForbiddenException("Room already booked at same time");
+        }
+    }
 
-        return responseBookingDTO;
+    private static OffsetDateTime parseDate(String value, String field) {
+        try {
+            return OffsetDateTime.parse(value);
+        } catch (DateTimeParseException e) {
+            throw new BadRequestException(field + " is not a valid date");
+        }
     }
 
-    public void updateReceiptUrl(PublishBookingEventDTO booking) {
-        Optional<Booking> bookingFound = bookingRepository.findById(booking.getId());
+    /**
+     * The database rejects overlapping BOOKED rows for the same room (bookings_room_no_overlap).
+     * Flushed so the violation is raised here even when running inside the lock transaction.
+     */
+    private Booking saveCheckingRoomOverlap(Booking booking) {
+        try {
+            return bookingRepository.saveAndFlush(booking);
+        } catch (DataIntegrityViolationException e) {
+            if (isRoomOverlapViolation(e)) {
+                throw new ForbiddenException("Room already booked at same time");
+            }
+            throw e;
+        }
+    }
 
-        if (bookingFound.isPresent()) {
-            bookingFound.get().setReceiptUrl(booking.getReceiptUrl());
-            bookingRepository.save(bookingFound.get());
+    /**
+     * bookings_room_no_overlap is the only exclusion constraint on bookings, so its SQLState identifies it
+     * whatever the language of the server messages
+     */
+    private static boolean isRoomOverlapViolation(DataIntegrityViolationException e) {
+        for (Throwable cause = e; cause != null; cause = cause.getCause()) {
+            if (cause instanceof SQLException sqlException && EXCLUSION_VIOLATION_STATE.equals(sqlException.getSQLState())) {
+                return true;
+            }
         }
+        String message = NestedExceptionUtils.getMostSpecificCause(e).getMessage();
+        return message != null && message.contains(ROOM_OVERLAP_CONSTRAINT);
     }
 }
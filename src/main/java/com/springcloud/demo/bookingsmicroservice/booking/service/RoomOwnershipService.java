@@ -0,0 +1,94 @@
+package com.springcloud.demo.bookingsmicroservice.booking.service;
+
+import com.springcloud.demo.bookingsmicroservice.booking.dto.RoomUpdatedEventDTO;
+import com.springcloud.demo.bookingsmicroservice.booking.model.RoomOwner;
+import com.springcloud.demo.bookingsmicroservice.booking.repository.RoomOwnerRepository;
+import com.springcloud.demo.bookingsmicroservice.client.rooms.RoomClientImpl;
+import com.springcloud.demo.bookingsmicroservice.client.rooms.StaleRoomPolicy;
+import com.springcloud.demo.bookingsmicroservice.client.rooms.dto.RoomDTO;
+import jakarta.persistence.EntityManager;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.dao.DataIntegrityViolationException;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.TransactionDefinition;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.util.UUID;
+
+/**
+ * Room owners read from the local room_owners projection. A room is loaded from rooms-ms the first
+ * time it is seen and then kept current by the rooms change topic.
+ */
+@Slf4j
+@Service
+public class RoomOwnershipService {
+
+    private final RoomOwnerRepository roomOwnerRepository;
+    private final RoomClientImpl roomClient;
+    private final StaleRoomPolicy staleRoomPolicy;
+    private final EntityManager entityManager;
+    private final TransactionTemplate insertTransaction;
+
+    public RoomOwnershipService(
+            RoomOwnerRepository roomOwnerRepository,
+            RoomClientImpl roomClient,
+            StaleRoomPolicy staleRoomPolicy,
+            EntityManager entityManager,
+            PlatformTransactionManager transactionManager
+    ) {
+        this.roomOwnerRepository = roomOwnerRepository;
+        this.roomClient = roomClient;
+        this.staleRoomPolicy = staleRoomPolicy;
+        this.entityManager = entityManager;
+        this.insertTransaction = new TransactionTemplate(transactionManager);
+        this.insertTransaction.setPropagationBehavior(TransactionDefinition.PROPAGATION_REQUIRES_NEW);
+    }
+
+    public String findOwnerId(UUID roomId, String operation) {
+        return roomOwnerRepository
+                .findById(roomId)
+                .map(RoomOwner::getOwnerId)
+                .orElseGet(() -> load(roomId, operation));
+    }
+
+    /**
+     * Events always win over owners loaded from rooms-ms, which may be older
+     */
+    public void update(RoomUpdatedEventDTO room) {
+        if (room.getId() == null || room.getOwnerId() == null) {
+            log.warn("Skipping room updated event without room or owner id: {}", room);
+            return;
+        }
+
+        roomOwnerRepository.save(RoomOwner.builder()
+                .roomId(room.getId())
+                .ownerId(room.getOwnerId())
+                .build());
+    }
+
+    private String load(UUID roomId, String operation) {
+        RoomDTO room = roomClient.findById(roomId.toString());
+        staleRoomPolicy.check(room, operation);
+
+        if (!room.isStale() && room.getOwnerId() != null) {
+            insertIfAbsent(roomId, room.getOwnerId());
+        }
+        return room.getOwnerId();
+    }
+
+    /**
+     * Persisted rather than saved: save merges an entity with an assigned id, which would overwrite an owner
+     * written meanwhile by the rooms change consumer
+     */
+    private void insertIfAbsent(UUID roomId, String ownerId) {
+        try {
+            insertTransaction.executeWithoutResult(status -> entityManager.persist(RoomOwner.builder()
+                    .roomId(roomId)
+                    .ownerId(ownerId)
+                    .build()));
+        } catch (DataIntegrityViolationException e) {
+            // Written meanwhile by the rooms change consumer, whose owner is kept
+        }
+    }
+}
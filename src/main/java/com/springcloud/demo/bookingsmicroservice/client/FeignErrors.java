@@ -0,0 +1,23 @@
+package com.springcloud.demo.bookingsmicroservice.client;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.ObjectReader;
+import com.springcloud.demo.bookingsmicroservice.exceptions.InheritedException;
+import feign.FeignException;
+
+import java.io.IOException;
+import java.util.Map;
+
+public class FeignErrors {
+
+    private static final ObjectReader errorBodyReader = new ObjectMapper().readerFor(Map.class);
+
+    /**
+     * Same status and message the downstream service answered with
+     */
+    public static InheritedException toInheritedException(FeignException.FeignClientException e) throws IOException {
+        Map<?, ?> body = errorBodyReader.readValue(e.contentUTF8());
+
+        return new InheritedException(e.status(), (String) body.get("message"));
+    }
+}
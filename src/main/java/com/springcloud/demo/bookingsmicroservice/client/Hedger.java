@@ -0,0 +1,205 @@
+package com.springcloud.demo.bookingsmicroservice.client;
+
+import com.springcloud.demo.bookingsmicroservice.monitoring.XRayTaskDecorator;
+import io.micrometer.core.instrument.MeterRegistry;
+import jakarta.annotation.PreDestroy;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+import java.time.Duration;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.*;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.Supplier;
+
+/**
+ * Hedged remote calls: when a call has not returned after the configured latency percentile of that client,
+ * a second identical call is sent and the first success wins. Hedges are paid from a global budget that
+ * grows with every call, so they never add more than budget-ratio extra load.
+ * The second call usually lands on another instance since the load balancer avoids the one busy with the first.
+ */
+@Component
+public class Hedger {
+
+    private static final int MIN_SAMPLES = 50;
+
+    private final MeterRegistry meterRegistry;
+    private final boolean enabled;
+    private final double percentile;
+    private final long minDelayNanos;
+    private final double budgetRatio;
+    private final double maxBudget;
+    private final int windowSize;
+
+    private final ExecutorService executor = Executors.newVirtualThreadPerTaskExecutor();
+    private final XRayTaskDecorator taskDecorator = new XRayTaskDecorator();
+    private final Map<String, LatencyWindow> windows = new ConcurrentHashMap<>();
+    private double budget;
+
+    public Hedger(
+            MeterRegistry meterRegistry,
+            @Value("${clients.hedging.enabled:false}") boolean enabled,
+            @Value("${clients.hedging.percentile:0.95}") double percentile,
+            @Value("${clients.hedging.min-delay:PT0.02S}") Duration minDelay,
+            @Value("${clients.hedging.budget-ratio:0.05}") double budgetRatio,
+            @Value("${clients.hedging.max-budget:10}") double maxBudget,
+            @Value("${clients.hedging.window-size:1000}") int windowSize
+    ) {
+        this.meterRegistry = meterRegistry;
+        this.enabled = enabled;
+        this.percentile = percentile;
+        this.minDelayNanos = minDelay.toNanos();
+        this.budgetRatio = budgetRatio;
+        this.maxBudget = maxBudget;
+        this.windowSize = windowSize;
+    }
+
+    public <T> T execute(String client, Supplier<T> call) {
+        if (!enabled) {
+            return call.get();
+        }
+
+        LatencyWindow window = windows.computeIfAbsent(client, key -> new LatencyWindow(windowSize));
+        long delay = window.delayNanos(percentile, minDelayNanos);
+        earnBudget();
+
+        if (delay < 0) {
+            long start = System.nanoTime();
+            T result = call.get();
+            window.record(System.nanoTime() - start);
+            return result;
+        }
+
+        CompletableFuture<T> primary = submit(call, window);
+        try {
+            return primary.get(delay, TimeUnit.NANOSECONDS);
+        } catch (TimeoutException e) {
+            if (!spendBudget()) {
+                return await(primary);
+            }
+        } catch (ExecutionException e) {
+            throw unwrap(e.getCause());
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new CompletionException(e);
+        }
+
+        meterRegistry.counter("clients.hedges.issued", "client", client).increment();
+        CompletableFuture<T> hedge = submit(call, window);
+
+        T result = await(firstSuccess(primary, hedge));
+        if (!hedge.isCompletedExceptionally() && (!primary.isDone() || primary.isCompletedExceptionally())) {
+            meterRegistry.counter("clients.hedges.won", "client", client).increment();
+        }
+        return result;
+    }
+
+    @PreDestroy
+    public void shutdown() {
+        executor.shutdownNow();
+    }
+
+    private <T> CompletableFuture<T> submit(Supplier<T> call, LatencyWindow window) {
+        CompletableFuture<T> future = new CompletableFuture<>();
+        executor.execute(taskDecorator.decorate(() -> {
+            long start = System.nanoTime();
+            try {
+                future.complete(call.get());
+                window.record(System.nanoTime() - start);
+            } catch (Throwable e) {
+                future.completeExceptionally(e);
+            }
+        }));
+        return future;
+    }
+
+    private synchronized void earnBudget() {
+        budget = Math.min(maxBudget, budget + budgetRatio);
+    }
+
+    private synchronized boolean spendBudget() {
+        if (budget < 1) {
+            return false;
+        }
+        budget--;
+        return true;
+    }
+
+    private static <T> CompletableFuture<T> firstSuccess(CompletableFuture<T> primary, CompletableFuture<T> hedge) {
+        CompletableFuture<T> result = new CompletableFuture<>();
+        AtomicInteger failures = new AtomicInteger();
+
+        for (CompletableFuture<T> attempt : List.of(primary, hedge)) {
+            attempt.whenComplete((value, error) -> {
+                if (error == null) {
+                    result.complete(value);
+                } else if (failures.incrementAndGet() == 2) {
+                    result.completeExceptionally(error);
+                }
+            });
+        }
+        return result;
+    }
+
+    private static <T> T await(CompletableFuture<T> future) {
+        try {
+            return future.join();
+        } catch (CompletionException e) {
+            throw unwrap(e.getCause());
+        }
+    }
+
+    private static RuntimeException unwrap(Throwable cause) {
+        if (cause instanceof RuntimeException runtimeException) {
+            return runtimeException;
+        }
+        if (cause instanceof Error error) {
+            throw error;
+        }
+        return new CompletionException(cause);
+    }
+
+    /**
+     * Last successful call latencies of one client, the percentile is recomputed at most every second
+     */
+    private static class LatencyWindow {
+
+        private static final long RECOMPUTE_INTERVAL_NANOS = TimeUnit.SECONDS.toNanos(1);
+
+        private final long[] samples;
+        private int next;
+        private int count;
+        private long cachedDelay = -1;
+        private long computedAt;
+
+        LatencyWindow(int size) {
+            this.samples = new long[size];
+        }
+
+        synchronized void record(long latencyNanos) {
+            samples[next] = latencyNanos;
+            next = (next + 1) % samples.length;
+            count = Math.min(count + 1, samples.length);
+        }
+
+        /**
+         * Negative while there are too few samples to hedge
+         */
+        synchronized long delayNanos(double percentile, long minDelayNanos) {
+            if (count < MIN_SAMPLES) {
+                return -1;
+            }
+            long now = System.nanoTime();
+            if (cachedDelay < 0 || now - computedAt >= RECOMPUTE_INTERVAL_NANOS) {
+                long[] sorted = Arrays.copyOf(samples, count);
+                Arrays.sort(sorted);
+                int index = (int) Math.min(sorted.length - 1, Math.ceil(percentile * sorted.length) - 1);
+                cachedDelay = Math.max(minDelayNanos, sorted[Math.max(index, 0)]);
+                computedAt = now;
+            }
+            return cachedDelay;
+        }
+    }
+}
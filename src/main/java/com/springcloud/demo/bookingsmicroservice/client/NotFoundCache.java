@@ -0,0 +1,41 @@
+package com.springcloud.demo.bookingsmicroservice.client;
+
+import com.github.benmanes.caffeine.cache.Cache;
+import com.github.benmanes.caffeine.cache.Caffeine;
+import com.springcloud.demo.bookingsmicroservice.exceptions.InheritedException;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.binder.cache.CaffeineCacheMetrics;
+
+import java.time.Duration;
+
+/**
+ * Short-lived memory of ids the downstream service answered 404 for, so repeated lookups of unknown ids
+ * fail with the same error without a network call
+ */
+public class NotFoundCache {
+
+    private final Cache<String, InheritedException> notFound;
+
+    public NotFoundCache(String client, MeterRegistry meterRegistry, Duration ttl, long maxSize) {
+        this.notFound = CaffeineCacheMetrics.monitor(
+                meterRegistry,
+                Caffeine.newBuilder()
+                        .maximumSize(maxSize)
+                        .expireAfterWrite(ttl)
+                        .recordStats()
+                        .<String, InheritedException>build(),
+                client + "-not-found"
+        );
+    }
+
+    public void check(String id) {
+        InheritedException e = notFound.getIfPresent(id);
+        if (e != null) {
+            throw e;
+        }
+    }
+
+    public void put(String id, InheritedException e) {
+        notFound.put(id, e);
+    }
+}
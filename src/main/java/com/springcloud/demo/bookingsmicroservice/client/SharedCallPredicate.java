@@ -0,0 +1,15 @@
+package com.springcloud.demo.bookingsmicroservice.client;
+
+import java.util.function.Predicate;
+
+/**
+ * Circuit breakers ignore the errors callers got from another caller's call (see {@link SingleFlight}): that
+ * call already recorded the outcome, once
+ */
+public class SharedCallPredicate implements Predicate<Throwable> {
+
+    @Override
+    public boolean test(Throwable e) {
+        return e instanceof SingleFlight.SharedCallException;
+    }
+}
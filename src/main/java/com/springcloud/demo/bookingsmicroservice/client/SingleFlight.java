@@ -0,0 +1,69 @@
+package com.springcloud.demo.bookingsmicroservice.client;
+
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.MeterRegistry;
+
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.function.Function;
+
+/**
+ * Coalesces concurrent calls for the same key: the first caller makes the call, the ones arriving while it is
+ * in flight wait for and share its result. When the call fails each waiting caller gets its own
+ * {@link SharedCallException} caused by that error, so the error is never thrown from several threads at once.
+ */
+public class SingleFlight<K, V> {
+
+    private final Map<K, CompletableFuture<V>> inFlight = new ConcurrentHashMap<>();
+    private final Counter collapsedCounter;
+
+    public SingleFlight(String client, MeterRegistry meterRegistry) {
+        this.collapsedCounter = Counter.builder("clients.calls.collapsed")
+                .tag("client", client)
+                .register(meterRegistry);
+    }
+
+    public V execute(K key, Function<K, V> call) {
+        CompletableFuture<V> flight = new CompletableFuture<>();
+        CompletableFuture<V> existing = inFlight.putIfAbsent(key, flight);
+
+        if (existing != null) {
+            collapsedCounter.increment();
+            return await(existing);
+        }
+
+        try {
+            V value = call.apply(key);
+            flight.complete(value);
+            return value;
+        } catch (RuntimeException e) {
+            flight.completeExceptionally(e);
+            throw e;
+        } finally {
+            inFlight.remove(key, flight);
+        }
+    }
+
+    private static <V> V await(CompletableFuture<V> future) {
+        try {
+            return future.join();
+        } catch (CompletionException e) {
+            throw new SharedCallException(e.getCause() == null ? e : e.getCause());
+        }
+    }
+
+    /**
+     * The error of the shared call when e was thrown to a waiting caller, e otherwise
+     */
+    public static Throwable unwrap(Throwable e) {
+        return e instanceof SharedCallException shared ? shared.getCause() : e;
+    }
+
+    public static class SharedCallException extends RuntimeException {
+        SharedCallException(Throwable cause) {
+            super(cause.getMessage(), cause);
+        }
+    }
+}
@@ -0,0 +1,110 @@
+package com.springcloud.demo.bookingsmicroservice.client.config;
+
+import com.github.benmanes.caffeine.cache.Cache;
+import com.github.benmanes.caffeine.cache.Caffeine;
+import com.github.benmanes.caffeine.cache.LoadingCache;
+import com.springcloud.demo.bookingsmicroservice.client.NotFoundCache;
+import com.springcloud.demo.bookingsmicroservice.client.SingleFlight;
+import com.springcloud.demo.bookingsmicroservice.client.rooms.dto.RoomDTO;
+import com.springcloud.demo.bookingsmicroservice.client.users.UserClientImpl;
+import com.springcloud.demo.bookingsmicroservice.client.users.UserDTO;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.binder.cache.CaffeineCacheMetrics;
+import org.springframework.beans.factory.ObjectProvider;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+
+import java.time.Duration;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+@Configuration
+public class ClientCacheConfig {
+
+    /**
+     * Rooms by id. Size-bounded (W-TinyLFU) and expired after write since room data rarely changes
+     */
+    @Bean
+    public Cache<String, RoomDTO> roomCache(
+            MeterRegistry meterRegistry,
+            @Value("${clients.rooms.cache.max-size:10000}") long maxSize,
+            @Value("${clients.rooms.cache.ttl:PT5M}") Duration ttl
+    ) {
+        Cache<String, RoomDTO> cache = Caffeine.newBuilder()
+                .maximumSize(maxSize)
+                .expireAfterWrite(ttl)
+                .recordStats()
+                .build();
+
+        return CaffeineCacheMetrics.monitor(meterRegistry, cache, "rooms");
+    }
+
+    /**
+     * Users by id, shared by booker and owner lookups. Entries older than refresh-after are reloaded in the
+     * background on access while the current value is still served; a failed refresh keeps the old value.
+     * Reloads go through {@link UserClientImpl#refresh} on a small pool of their own; when it is full the
+     * refresh is skipped and tried again on a later access.
+     */
+    @Bean
+    public LoadingCache<String, UserDTO> userCache(
+            ObjectProvider<UserClientImpl> userClients,
+            MeterRegistry meterRegistry,
+            @Value("${clients.users.cache.max-size:10000}") long maxSize,
+            @Value("${clients.users.cache.ttl:PT10M}") Duration ttl,
+            @Value("${clients.users.cache.refresh-after:PT2M}") Duration refreshAfter,
+            @Value("${clients.users.cache.refresh-pool-size:2}") int refreshPoolSize,
+            @Value("${clients.users.cache.refresh-queue-capacity:1000}") int refreshQueueCapacity
+    ) {
+        AtomicInteger threads = new AtomicInteger();
+        ThreadPoolExecutor refreshExecutor = new ThreadPoolExecutor(
+                refreshPoolSize, refreshPoolSize, 0, TimeUnit.MILLISECONDS, new ArrayBlockingQueue<>(refreshQueueCapacity),
+                runnable -> {
+                    Thread thread = new Thread(runnable, "user-cache-refresh-" + threads.incrementAndGet());
+                    thread.setDaemon(true);
+                    return thread;
+                }
+        );
+
+        // Resolved on use: UserClientImpl depends on this cache
+        LoadingCache<String, UserDTO> cache = Caffeine.newBuilder()
+                .maximumSize(maxSize)
+                .expireAfterWrite(ttl)
+                .refreshAfterWrite(refreshAfter)
+                .executor(refreshExecutor)
+                .recordStats()
+                .build(id -> userClients.getObject().refresh(id));
+
+        return CaffeineCacheMetrics.monitor(meterRegistry, cache, "users");
+    }
+
+    @Bean
+    public SingleFlight<String, RoomDTO> roomLookups(MeterRegistry meterRegistry) {
+        return new SingleFlight<>("rooms", meterRegistry);
+    }
+
+    @Bean
+    public SingleFlight<String, UserDTO> userLookups(MeterRegistry meterRegistry) {
+        return new SingleFlight<>("users", meterRegistry);
+    }
+
+    @Bean
+    public NotFoundCache roomNotFoundCache(
+            MeterRegistry meterRegistry,
+            @Value("${clients.rooms.not-found.ttl:PT30S}") Duration ttl,
+            @Value("${clients.rooms.not-found.max-size:10000}") long maxSize
+    ) {
+        return new NotFoundCache("rooms", meterRegistry, ttl, maxSize);
+    }
+
+    @Bean
+    public NotFoundCache userNotFoundCache(
+            MeterRegistry meterRegistry,
+            @Value("${clients.users.not-found.ttl:PT30S}") Duration ttl,
+            @Value("${clients.users.not-found.max-size:10000}") long maxSize
+    ) {
+        return new NotFoundCache("users", meterRegistry, ttl, maxSize);
+    }
+}
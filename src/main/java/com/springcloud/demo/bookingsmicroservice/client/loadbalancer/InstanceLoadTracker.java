@@ -0,0 +1,82 @@
+package com.springcloud.demo.bookingsmicroservice.client.loadbalancer;
+
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.cloud.client.ServiceInstance;
+import org.springframework.cloud.client.loadbalancer.*;
+import org.springframework.stereotype.Component;
+
+import java.time.Duration;
+import java.util.Map;
+import java.util.TreeMap;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * Records in-flight count and latency of every load-balanced request, per service instance
+ */
+@Component
+public class InstanceLoadTracker implements LoadBalancerLifecycle<RequestDataContext, ResponseData, ServiceInstance> {
+
+    private final double alpha;
+    private final double failurePenaltyMillis;
+    private final Map<String, Map<String, InstanceStats>> services = new ConcurrentHashMap<>();
+
+    public InstanceLoadTracker(
+            @Value("${clients.load-balancer.ewma-alpha:0.3}") double alpha,
+            @Value("${clients.load-balancer.failure-penalty:PT1S}") Duration failurePenalty
+    ) {
+        this.alpha = alpha;
+        this.failurePenaltyMillis = failurePenalty.toMillis();
+    }
+
+    public InstanceStats statsOf(ServiceInstance instance) {
+        return services
+                .computeIfAbsent(instance.getServiceId(), serviceId -> new ConcurrentHashMap<>())
+                .computeIfAbsent(keyOf(instance), key -> new InstanceStats(alpha, failurePenaltyMillis));
+    }
+
+    public Map<String, Map<String, InstanceStats>> snapshot() {
+        Map<String, Map<String, InstanceStats>> snapshot = new TreeMap<>();
+        services.forEach((serviceId, instances) -> snapshot.put(serviceId, new TreeMap<>(instances)));
+        return snapshot;
+    }
+
+    @Override
+    public boolean supports(Class requestContextClass, Class responseClass, Class serverTypeClass) {
+        return RequestDataContext.class.isAssignableFrom(requestContextClass)
+                && ResponseData.class.isAssignableFrom(responseClass)
+                && ServiceInstance.class.isAssignableFrom(serverTypeClass);
+    }
+
+    @Override
+    public void onStart(Request<RequestDataContext> request) {
+    }
+
+    @Override
+    public void onStartRequest(Request<RequestDataContext> request, Response<ServiceInstance> lbResponse) {
+        if (!lbResponse.hasServer()) {
+            return;
+        }
+        request.getContext().setRequestStartTime(System.nanoTime());
+        statsOf(lbResponse.getServer()).start();
+    }
+
+    @Override
+    public void onComplete(CompletionContext<ResponseData, ServiceInstance, RequestDataContext> completionContext) {
+        Response<ServiceInstance> lbResponse = completionContext.getLoadBalancerResponse();
+        if (lbResponse == null || !lbResponse.hasServer() || completionContext.status() == CompletionContext.Status.DISCARD) {
+            return;
+        }
+
+        long startTime = completionContext.getLoadBalancerRequest().getContext().getRequestStartTime();
+        boolean failed = completionContext.status() == CompletionContext.Status.FAILED
+                || (completionContext.getClientResponse() != null
+                && completionContext.getClientResponse().getHttpStatus() != null
+                && completionContext.getClientResponse().getHttpStatus().is5xxServerError());
+
+        statsOf(lbResponse.getServer()).complete(System.nanoTime() - startTime, failed);
+    }
+
+    private static String keyOf(ServiceInstance instance) {
+        return instance.getHost() + ":" + instance.getPort();
+    }
+}
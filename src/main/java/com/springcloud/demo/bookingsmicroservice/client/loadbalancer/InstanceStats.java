@@ -0,0 +1,68 @@
+package com.springcloud.demo.bookingsmicroservice.client.loadbalancer;
+
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Load of one service instance: requests in flight and exponentially weighted moving average of latency.
+ * A failed request is averaged in as taking at least the failure penalty, so an instance that fails fast
+ * (connection refused, quick 5xx) scores worse than a slower healthy one.
+ */
+public class InstanceStats {
+
+    private final double alpha;
+    private final double failurePenaltyMillis;
+    private final AtomicInteger inFlight = new AtomicInteger();
+    private final AtomicLong ewmaLatencyBits = new AtomicLong(Double.doubleToLongBits(0));
+    private final AtomicLong requests = new AtomicLong();
+    private final AtomicLong failures = new AtomicLong();
+
+    InstanceStats(double alpha, double failurePenaltyMillis) {
+        this.alpha = alpha;
+        this.failurePenaltyMillis = failurePenaltyMillis;
+    }
+
+    void start() {
+        inFlight.incrementAndGet();
+    }
+
+    void complete(long latencyNanos, boolean failed) {
+        inFlight.decrementAndGet();
+        if (failed) {
+            failures.incrementAndGet();
+        }
+
+        double latencyMillis = failed
+                ? Math.max(latencyNanos / 1_000_000.0, failurePenaltyMillis)
+                : latencyNanos / 1_000_000.0;
+        boolean first = requests.getAndIncrement() == 0;
+        ewmaLatencyBits.updateAndGet(bits -> {
+            double current = Double.longBitsToDouble(bits);
+            return Double.doubleToLongBits(first ? latencyMillis : current + alpha * (latencyMillis - current));
+        });
+    }
+
+    /**
+     * Expected wait for a new request: average latency times the requests it would queue behind. Instances
+     * without samples score 0 so they get probed.
+     */
+    double score() {
+        return getEwmaLatencyMillis() * (inFlight.get() + 1);
+    }
+
+    public int getInFlight() {
+        return inFlight.get();
+    }
+
+    public double getEwmaLatencyMillis() {
+        return Double.longBitsToDouble(ewmaLatencyBits.get());
+    }
+
+    public long getRequests() {
+        return requests.get();
+    }
+
+    public long getFailures() {
+        return failures.get();
+    }
+}
@@ -0,0 +1,24 @@
+package com.springcloud.demo.bookingsmicroservice.client.loadbalancer;
+
+import lombok.RequiredArgsConstructor;
+import org.springframework.boot.actuate.endpoint.annotation.Endpoint;
+import org.springframework.boot.actuate.endpoint.annotation.ReadOperation;
+import org.springframework.stereotype.Component;
+
+import java.util.Map;
+
+/**
+ * /actuator/loadbalancerstats: in-flight requests, EWMA latency, requests and failures per service instance
+ */
+@Component
+@Endpoint(id = "loadbalancerstats")
+@RequiredArgsConstructor
+public class LoadBalancerStatsEndpoint {
+
+    private final InstanceLoadTracker loadTracker;
+
+    @ReadOperation
+    public Map<String, Map<String, InstanceStats>> stats() {
+        return loadTracker.snapshot();
+    }
+}
@@ -0,0 +1,68 @@
+package com.springcloud.demo.bookingsmicroservice.client.rooms;
+
+import com.github.benmanes.caffeine.cache.Cache;
+import com.github.benmanes.caffeine.cache.Caffeine;
+import com.springcloud.demo.bookingsmicroservice.client.rooms.dto.RoomDTO;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.MeterRegistry;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+import java.time.Duration;
+import java.util.Optional;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Last room successfully fetched from rooms-ms, kept up to max-age so it can be served (flagged as stale)
+ * while rooms-ms is unavailable.
+ */
+@Component
+public class LastKnownRooms {
+
+    private final Cache<String, Entry> rooms;
+    private final long revalidateIntervalNanos;
+    private final Counter staleServedCounter;
+
+    public LastKnownRooms(
+            MeterRegistry meterRegistry,
+            @Value("${clients.rooms.stale.max-age:PT1H}") Duration maxAge,
+            @Value("${clients.rooms.stale.revalidate-interval:PT5S}") Duration revalidateInterval,
+            @Value("${clients.rooms.stale.max-size:10000}") long maxSize
+    ) {
+        this.rooms = Caffeine.newBuilder()
+                .maximumSize(maxSize)
+                .expireAfterWrite(maxAge)
+                .build();
+        this.revalidateIntervalNanos = revalidateInterval.toNanos();
+        this.staleServedCounter = Counter.builder("clients.rooms.stale.served").register(meterRegistry);
+    }
+
+    public void put(String id, RoomDTO room) {
+        rooms.put(id, new Entry(room, new AtomicLong(System.nanoTime())));
+    }
+
+    public Optional<RoomDTO> findStale(String id) {
+        Entry entry = rooms.getIfPresent(id);
+        if (entry == null) {
+            return Optional.empty();
+        }
+        staleServedCounter.increment();
+        return Optional.of(entry.room().toBuilder().stale(true).build());
+    }
+
+    /**
+     * True at most once per revalidate-interval for each room, so a down rooms-ms only gets occasional refreshes
+     */
+    public boolean shouldRevalidate(String id) {
+        Entry entry = rooms.getIfPresent(id);
+        if (entry == null) {
+            return false;
+        }
+        long last = entry.lastRevalidation().get();
+        long now = System.nanoTime();
+        return now - last >= revalidateIntervalNanos && entry.lastRevalidation().compareAndSet(last, now);
+    }
+
+    private record Entry(RoomDTO room, AtomicLong lastRevalidation) {
+    }
+}
@@ -1,38 +1,103 @@
 package com.springcloud.demo.bookingsmicroservice.client.rooms;
 
-import com.fasterxml.jackson.databind.ObjectMapper;
+import com.github.benmanes.caffeine.cache.Cache;
+import com.springcloud.demo.bookingsmicroservice.client.FeignErrors;
+import com.springcloud.demo.bookingsmicroservice.client.Hedger;
+import com.springcloud.demo.bookingsmicroservice.client.NotFoundCache;
+import com.springcloud.demo.bookingsmicroservice.client.SingleFlight;
 import com.springcloud.demo.bookingsmicroservice.client.rooms.dto.RoomDTO;
 import com.springcloud.demo.bookingsmicroservice.exceptions.ForbiddenException;
 import com.springcloud.demo.bookingsmicroservice.exceptions.InheritedException;
+import com.springcloud.demo.bookingsmicroservice.config.BookingLookupPool;
 import feign.FeignException;
+import io.github.resilience4j.circuitbreaker.CallNotPermittedException;
+import io.github.resilience4j.circuitbreaker.CircuitBreakerRegistry;
 import io.github.resilience4j.circuitbreaker.annotation.CircuitBreaker;
 import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
 import org.springframework.stereotype.Component;
 
-import java.util.Map;
+import java.util.concurrent.CompletableFuture;
 
+@Slf4j
 @Component
 @RequiredArgsConstructor
 public class RoomClientImpl implements RoomClient {
 
+    private static final String CIRCUIT_BREAKER = "rooms-service";
+
     private final RoomClient roomClient;
+    private final Cache<String, RoomDTO> roomCache;
+    private final SingleFlight<String, RoomDTO> roomLookups;
+    private final NotFoundCache roomNotFoundCache;
+    private final Hedger hedger;
+    private final LastKnownRooms lastKnownRooms;
+    private final BookingLookupPool bookingLookupPool;
+    private final CircuitBreakerRegistry circuitBreakerRegistry;
 
+    /**
+     * Served from the local cache when present, concurrent misses for the same room share one remote call.
+     * Callers get a copy, so they can enrich it (e.g. set the owner) freely
+     */
     @Override
-    @CircuitBreaker(name = "rooms-service", fallbackMethod = "findRoomByIdFallback")
+    @CircuitBreaker(name = CIRCUIT_BREAKER, fallbackMethod = "findRoomByIdFallback")
     public RoomDTO findById(String id) {
-        return roomClient.findById(id);
+        roomNotFoundCache.check(id);
+
+        RoomDTO room = roomCache.getIfPresent(id);
+        if (room == null) {
+            room = roomLookups.execute(id, this::fetch);
+        }
+        return room == null ? null : room.toBuilder().build();
+    }
+
+    private RoomDTO fetch(String id) {
+        RoomDTO room = hedger.execute("rooms", () -> roomClient.findById(id));
+        if (room != null) {
+            roomCache.put(id, room);
+            lastKnownRooms.put(id, room);
+        }
+        return room;
     }
 
+    /**
+     * When rooms-ms is not available the last known room is served as stale, and refreshed in the background
+     */
     public RoomDTO findRoomByIdFallback(String id, Throwable e) throws Exception {
-        if(!(e instanceof FeignException.FeignClientException feignClientException)){
-            throw new ForbiddenException("Rooms service not available. Try later");
+        Throwable error = SingleFlight.unwrap(e);
+        if (error instanceof InheritedException inherited) {
+            throw inherited;
         }
 
-        Map body = new ObjectMapper().readValue(feignClientException.contentUTF8(), Map.class);
+        if(!(error instanceof FeignException.FeignClientException feignClientException)){
+            RoomDTO staleRoom = lastKnownRooms
+                    .findStale(id)
+                    .orElseThrow(() -> new ForbiddenException("Rooms service not available. Try later"));
 
-        throw new InheritedException(
-                feignClientException.status(),
-                (String) body.get("message")
-        );
+            if (lastKnownRooms.shouldRevalidate(id)) {
+                CompletableFuture.runAsync(() -> revalidate(id), bookingLookupPool.executor());
+            }
+            return staleRoom;
+        }
+
+        InheritedException inheritedException = FeignErrors.toInheritedException(feignClientException);
+        if (feignClientException.status() == 404) {
+            roomNotFoundCache.put(id, inheritedException);
+        }
+        throw inheritedException;
+    }
+
+    /**
+     * Goes through the same circuit breaker as findById, so refreshes count towards it and are not sent while it is open
+     */
+    private void revalidate(String id) {
+        try {
+            circuitBreakerRegistry.circuitBreaker(CIRCUIT_BREAKER)
+                    .executeSupplier(() -> roomLookups.execute(id, this::fetch));
+        } catch (CallNotPermittedException e) {
+            log.debug("Skipped refreshing stale room {}, rooms-service circuit is open", id);
+        } catch (RuntimeException e) {
+            log.warn("Failed to refresh stale room {}", id, e);
+        }
     }
 }
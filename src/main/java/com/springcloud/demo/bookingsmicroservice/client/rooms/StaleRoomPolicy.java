@@ -0,0 +1,27 @@
+package com.springcloud.demo.bookingsmicroservice.client.rooms;
+
+import com.springcloud.demo.bookingsmicroservice.client.rooms.dto.RoomDTO;
+import com.springcloud.demo.bookingsmicroservice.exceptions.ForbiddenException;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+import java.util.Set;
+
+/**
+ * Operations allowed to go on with a stale room (served from {@link LastKnownRooms} while rooms-ms is down)
+ */
+@Component
+public class StaleRoomPolicy {
+
+    private final Set<String> tolerantOperations;
+
+    public StaleRoomPolicy(@Value("${clients.rooms.stale.operations:create,updateStatus}") Set<String> tolerantOperations) {
+        this.tolerantOperations = tolerantOperations;
+    }
+
+    public void check(RoomDTO room, String operation) {
+        if (room.isStale() && !tolerantOperations.contains(operation)) {
+            throw new ForbiddenException("Rooms service not available. Try later");
+        }
+    }
+}
@@ -1,5 +1,6 @@
 package com.springcloud.demo.bookingsmicroservice.client.rooms.dto;
 
+import com.fasterxml.jackson.annotation.JsonIgnore;
 import com.springcloud.demo.bookingsmicroservice.client.users.UserDTO;
 import lombok.AllArgsConstructor;
 import lombok.Builder;
@@ -10,7 +11,7 @@ import java.util.List;
 import java.util.UUID;
 
 @Data
-@Builder
+@Builder(toBuilder = true)
 @NoArgsConstructor
 @AllArgsConstructor
 public class RoomDTO {
@@ -26,4 +27,10 @@ public class RoomDTO {
     private Integer mediumBeds;
     private Integer doubleBeds;
     private UserDTO owner;
+
+    /**
+     * Served from the last known copy because rooms-ms was not available
+     */
+    @JsonIgnore
+    private boolean stale;
 }
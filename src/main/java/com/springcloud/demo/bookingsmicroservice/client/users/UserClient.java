@@ -4,10 +4,20 @@ import com.springcloud.demo.bookingsmicroservice.client.config.FeignConfig;
 import org.springframework.cloud.openfeign.FeignClient;
 import org.springframework.web.bind.annotation.GetMapping;
 import org.springframework.web.bind.annotation.PathVariable;
+import org.springframework.web.bind.annotation.PostMapping;
+import org.springframework.web.bind.annotation.RequestBody;
+
+import java.util.List;
 
 @FeignClient(name = "users-ms", configuration = FeignConfig.class)
 public interface UserClient {
 
     @GetMapping("/api/users/{id}")
     UserDTO findById(@PathVariable String id);
+
+    /**
+     * Users found among the given ids, in any order. Ids not found are just missing from the response
+     */
+    @PostMapping("/api/users/batch")
+    List<UserDTO> findByIds(@RequestBody List<String> ids);
 }
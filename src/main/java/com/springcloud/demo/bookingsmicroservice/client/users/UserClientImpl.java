@@ -1,6 +1,10 @@
 package com.springcloud.demo.bookingsmicroservice.client.users;
 
-import com.fasterxml.jackson.databind.ObjectMapper;
+import com.github.benmanes.caffeine.cache.LoadingCache;
+import com.springcloud.demo.bookingsmicroservice.client.FeignErrors;
+import com.springcloud.demo.bookingsmicroservice.client.Hedger;
+import com.springcloud.demo.bookingsmicroservice.client.NotFoundCache;
+import com.springcloud.demo.bookingsmicroservice.client.SingleFlight;
 import com.springcloud.demo.bookingsmicroservice.exceptions.ForbiddenException;
 import com.springcloud.demo.bookingsmicroservice.exceptions.InheritedException;
 import feign.FeignException;
@@ -8,30 +12,73 @@ import io.github.resilience4j.circuitbreaker.annotation.CircuitBreaker;
 import lombok.RequiredArgsConstructor;
 import org.springframework.stereotype.Component;
 
-import java.util.Map;
+import java.util.List;
 
 @Component
 @RequiredArgsConstructor
 public class UserClientImpl implements UserClient {
 
     private final UserClient userClient;
+    private final LoadingCache<String, UserDTO> userCache;
+    private final SingleFlight<String, UserDTO> userLookups;
+    private final NotFoundCache userNotFoundCache;
+    private final Hedger hedger;
+    private final UserLookupBatcher userLookupBatcher;
 
+    /**
+     * Served from the local cache when present (refreshed ahead by its loader, see ClientCacheConfig#userCache),
+     * concurrent misses for the same user share one remote call
+     */
     @Override
     @CircuitBreaker(name = "users-service", fallbackMethod = "findUserByIdFallback")
     public UserDTO findById(String id) {
-        return userClient.findById(id);
+        userNotFoundCache.check(id);
+
+        UserDTO user = userCache.getIfPresent(id);
+        if (user == null) {
+            user = userLookups.execute(id, this::fetch);
+        }
+        return user;
+    }
+
+    /**
+     * Reload for the refresh-ahead of userCache: like findById (circuit breaker, not found cache, single-flight,
+     * batcher) but never served from the cache. Failures are left to the cache, which keeps the current value
+     */
+    @CircuitBreaker(name = "users-service")
+    public UserDTO refresh(String id) {
+        userNotFoundCache.check(id);
+        return userLookups.execute(id, this::fetch);
+    }
+
+    @Override
+    @CircuitBreaker(name = "users-service")
+    public List<UserDTO> findByIds(List<String> ids) {
+        return userClient.findByIds(ids);
+    }
+
+    private UserDTO fetch(String id) {
+        UserDTO user = hedger.execute("users", () -> userLookupBatcher.load(id));
+        if (user != null) {
+            userCache.put(id, user);
+        }
+        return user;
     }
 
     public UserDTO findUserByIdFallback(String id, Throwable e) throws Exception {
-        if(!(e instanceof FeignException.FeignClientException feignClientException)){
-            throw new ForbiddenException("Users service not available. Try later");
+        Throwable error = SingleFlight.unwrap(e);
+        if (error instanceof InheritedException inherited) {
+            throw inherited;
         }
 
-        Map body = new ObjectMapper().readValue(feignClientException.contentUTF8(), Map.class);
+        if(!(error instanceof FeignException.FeignClientException feignClientException)){
+            throw new ForbiddenException("Users service not available. Try later");
+        }
 
-        throw new InheritedException(
-                feignClientException.status(),
-                (String) body.get("message")
-        );
+        InheritedException inheritedException = FeignErrors.toInheritedException(feignClientException);
+        if (feignClientException.status() == 404) {
+            userNotFoundCache.put(id, inheritedException);
+        }
+        throw inheritedException;
     }
 }
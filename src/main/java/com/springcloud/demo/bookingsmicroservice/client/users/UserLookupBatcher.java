@@ -0,0 +1,172 @@
+package com.springcloud.demo.bookingsmicroservice.client.users;
+
+import com.amazonaws.xray.AWSXRay;
+import com.amazonaws.xray.entities.Entity;
+import com.springcloud.demo.bookingsmicroservice.monitoring.XRayTaskDecorator;
+import feign.FeignException;
+import jakarta.annotation.PreDestroy;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+import java.time.Duration;
+import java.util.*;
+import java.util.concurrent.*;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.Function;
+import java.util.stream.Collectors;
+
+/**
+ * Collects single user lookups for a short window (or until max-size ids) and resolves them with one
+ * {@link UserClient#findByIds} call. The scheduler only runs the window timers; batch calls run on a bounded
+ * pool of their own, traced under the request that opened the batch. Ids missing from the batch response,
+ * batches the pool has no room for, and every lookup once users-ms turns out not to expose the batch endpoint,
+ * fall back to {@link UserClient#findById} on the caller thread.
+ */
+@Slf4j
+@Component
+public class UserLookupBatcher {
+
+    private static final Set<Integer> UNSUPPORTED_STATUSES = Set.of(404, 405, 501);
+    private static final UserDTO NOT_BATCHED = new UserDTO();
+
+    private final UserClient userClient;
+    private final boolean enabled;
+    private final Duration window;
+    private final int maxSize;
+    private final ScheduledExecutorService scheduler;
+    private final ExecutorService dispatcher;
+
+    private final Object lock = new Object();
+    private Map<String, CompletableFuture<UserDTO>> pending = new LinkedHashMap<>();
+    private Entity pendingTraceEntity;
+    private volatile boolean batchSupported = true;
+
+    public UserLookupBatcher(
+            UserClient userClient,
+            @Value("${clients.users.batch.enabled:true}") boolean enabled,
+            @Value("${clients.users.batch.window:PT0.005S}") Duration window,
+            @Value("${clients.users.batch.max-size:50}") int maxSize,
+            @Value("${clients.users.batch.concurrency:8}") int concurrency,
+            @Value("${clients.users.batch.queue-capacity:64}") int queueCapacity
+    ) {
+        this.userClient = userClient;
+        this.enabled = enabled;
+        this.window = window;
+        this.maxSize = maxSize;
+        this.scheduler = Executors.newSingleThreadScheduledExecutor(runnable -> {
+            Thread thread = new Thread(runnable, "user-lookup-batcher");
+            thread.setDaemon(true);
+            return thread;
+        });
+
+        AtomicInteger threads = new AtomicInteger();
+        this.dispatcher = new ThreadPoolExecutor(
+                concurrency, concurrency, 0, TimeUnit.MILLISECONDS, new ArrayBlockingQueue<>(queueCapacity),
+                runnable -> {
+                    Thread thread = new Thread(runnable, "user-lookup-batch-" + threads.incrementAndGet());
+                    thread.setDaemon(true);
+                    return thread;
+                }
+        );
+    }
+
+    public UserDTO load(String id) {
+        if (!enabled || !batchSupported) {
+            return userClient.findById(id);
+        }
+
+        UserDTO user = join(enqueue(id));
+        return user == NOT_BATCHED ? userClient.findById(id) : user;
+    }
+
+    @PreDestroy
+    public void shutdown() {
+        scheduler.shutdownNow();
+        dispatcher.shutdownNow();
+    }
+
+    private CompletableFuture<UserDTO> enqueue(String id) {
+        Batch full = null;
+        CompletableFuture<UserDTO> future;
+
+        synchronized (lock) {
+            boolean first = pending.isEmpty();
+            future = pending.computeIfAbsent(id, key -> new CompletableFuture<>());
+
+            if (first) {
+                pendingTraceEntity = AWSXRay.getTraceEntity();
+            }
+            if (pending.size() >= maxSize) {
+                full = drain();
+            } else if (first) {
+                scheduler.schedule(this::flush, window.toNanos(), TimeUnit.NANOSECONDS);
+            }
+        }
+
+        if (full != null) {
+            submit(full);
+        }
+        return future;
+    }
+
+    private void flush() {
+        Batch batch;
+        synchronized (lock) {
+            batch = drain();
+        }
+        submit(batch);
+    }
+
+    private Batch drain() {
+        Batch batch = new Batch(pending, pendingTraceEntity);
+        pending = new LinkedHashMap<>();
+        pendingTraceEntity = null;
+        return batch;
+    }
+
+    private void submit(Batch batch) {
+        if (batch.lookups().isEmpty()) {
+            return;
+        }
+
+        try {
+            dispatcher.execute(XRayTaskDecorator.withTraceEntity(batch.traceEntity(), () -> dispatch(batch.lookups())));
+        } catch (RejectedExecutionException e) {
+            batch.lookups().values().forEach(future -> future.complete(NOT_BATCHED));
+        }
+    }
+
+    private void dispatch(Map<String, CompletableFuture<UserDTO>> batch) {
+        try {
+            Map<String, UserDTO> found = userClient
+                    .findByIds(List.copyOf(batch.keySet()))
+                    .stream()
+                    .collect(Collectors.toMap(user -> user.getId().toString(), Function.identity(), (a, b) -> a));
+
+            batch.forEach((id, future) -> future.complete(found.getOrDefault(id, NOT_BATCHED)));
+        } catch (FeignException.FeignClientException e) {
+            if (UNSUPPORTED_STATUSES.contains(e.status())) {
+                log.warn("users-ms does not expose the batch endpoint ({}), falling back to single lookups", e.status());
+                batchSupported = false;
+            }
+            batch.values().forEach(future -> future.complete(NOT_BATCHED));
+        } catch (RuntimeException e) {
+            batch.values().forEach(future -> future.completeExceptionally(e));
+        }
+    }
+
+    private record Batch(Map<String, CompletableFuture<UserDTO>> lookups, Entity traceEntity) {
+    }
+
+    private static UserDTO join(CompletableFuture<UserDTO> future) {
+        try {
+            return future.join();
+        } catch (CompletionException e) {
+            if (e.getCause() instanceof RuntimeException cause) {
+                throw cause;
+            }
+            throw e;
+        }
+    }
+}
@@ -0,0 +1,29 @@
+package com.springcloud.demo.bookingsmicroservice.config;
+
+import org.springframework.beans.factory.DisposableBean;
+
+import java.util.concurrent.Executor;
+
+/**
+ * Pool of the background remote lookups, e.g. RoomClientImpl refreshing stale rooms. Registered as this type
+ * rather than as an Executor bean, which would keep Boot from creating its own applicationTaskExecutor
+ */
+public class BookingLookupPool implements DisposableBean {
+
+    private final Executor executor;
+
+    public BookingLookupPool(Executor executor) {
+        this.executor = executor;
+    }
+
+    public Executor executor() {
+        return executor;
+    }
+
+    @Override
+    public void destroy() throws Exception {
+        if (executor instanceof DisposableBean disposable) {
+            disposable.destroy();
+        }
+    }
+}
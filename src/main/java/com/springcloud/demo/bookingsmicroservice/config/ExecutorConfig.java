@@ -0,0 +1,32 @@
+package com.springcloud.demo.bookingsmicroservice.config;
+
+import com.springcloud.demo.bookingsmicroservice.monitoring.XRayTaskDecorator;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.scheduling.concurrent.ThreadPoolTaskExecutor;
+
+import java.util.concurrent.ThreadPoolExecutor;
+
+@Configuration
+public class ExecutorConfig {
+
+    /**
+     * Background remote lookups. When saturated the caller runs the lookup itself
+     */
+    @Bean
+    public BookingLookupPool bookingLookupPool(
+            @Value("${bookings.lookups.pool-size:32}") int poolSize,
+            @Value("${bookings.lookups.queue-capacity:256}") int queueCapacity
+    ) {
+        ThreadPoolTaskExecutor executor = new ThreadPoolTaskExecutor();
+        executor.setCorePoolSize(poolSize);
+        executor.setMaxPoolSize(poolSize);
+        executor.setQueueCapacity(queueCapacity);
+        executor.setThreadNamePrefix("booking-lookup-");
+        executor.setTaskDecorator(new XRayTaskDecorator());
+        executor.setRejectedExecutionHandler(new ThreadPoolExecutor.CallerRunsPolicy());
+        executor.initialize();
+        return new BookingLookupPool(executor);
+    }
+}
@@ -48,6 +48,18 @@ public class HandlerExceptions {
                 .build();
     }
 
+    @ExceptionHandler(ConflictException.class)
+    @ResponseStatus(HttpStatus.CONFLICT)
+    public ErrorResponseDTO handleConflictExceptions(ConflictException e){
+        tracingExceptions.addExceptionMetadata(e.getMessage());
+
+        return ErrorResponseDTO
+                .builder()
+                .status(HttpStatus.CONFLICT.value())
+                .message(e.getMessage())
+                .build();
+    }
+
     @ExceptionHandler(MethodArgumentNotValidException.class)
     @ResponseStatus(HttpStatus.BAD_REQUEST)
     public ErrorResponseDTO handleMethodArgumentNotValidException(MethodArgumentNotValidException e){
@@ -1,17 +1,145 @@
 package com.springcloud.demo.bookingsmicroservice.messaging;
 
-import lombok.RequiredArgsConstructor;
+import com.springcloud.demo.bookingsmicroservice.messaging.codec.EventCodec;
+import com.springcloud.demo.bookingsmicroservice.messaging.codec.EventCodecs;
+import com.springcloud.demo.bookingsmicroservice.messaging.codec.EventSchemas;
+import com.springcloud.demo.bookingsmicroservice.messaging.spool.DiskSpool;
+import com.springcloud.demo.bookingsmicroservice.messaging.spool.SpoolReplayer;
+import io.micrometer.core.instrument.DistributionSummary;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+import org.apache.kafka.clients.producer.ProducerRecord;
+import org.apache.kafka.common.errors.RetriableException;
+import org.springframework.beans.factory.ObjectProvider;
 import org.springframework.kafka.core.KafkaTemplate;
+import org.springframework.kafka.support.SendResult;
 import org.springframework.stereotype.Service;
 
+import java.nio.charset.StandardCharsets;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.TimeUnit;
+import java.util.function.Function;
+
+/**
+ * Records the broker can't take right now (unreachable, or the producer buffer is full) are appended to the
+ * {@link DiskSpool} when it is enabled, and so is everything sent while the spool still has records, so sends
+ * don't each wait max.block.ms on a broker that is down. {@link SpoolReplayer} sends them once the broker is back.
+ * Spooled records are delivered at least once but not in order: failed in-flight sends are spooled as their
+ * failures arrive, in any order.
+ */
 @Service
-@RequiredArgsConstructor
 public class KafkaProducer implements MessagingProducer{
 
-    private final KafkaTemplate<String, String> kafkaTemplate;
+    public static final String CONTENT_TYPE_HEADER = "content-type";
+    public static final String SCHEMA_NAME_HEADER = "schema-name";
+    public static final String SCHEMA_VERSION_HEADER = "schema-version";
+
+    private final KafkaTemplate<String, byte[]> kafkaTemplate;
+    private final EventCodecs eventCodecs;
+    private final MeterRegistry meterRegistry;
+    private final DiskSpool spool;
+
+    public KafkaProducer(
+            KafkaTemplate<String, byte[]> kafkaTemplate,
+            EventCodecs eventCodecs,
+            MeterRegistry meterRegistry,
+            ObjectProvider<DiskSpool> spool
+    ) {
+        this.kafkaTemplate = kafkaTemplate;
+        this.eventCodecs = eventCodecs;
+        this.meterRegistry = meterRegistry;
+        this.spool = spool.getIfAvailable();
+    }
 
     @Override
-    public void sendMessage(String topic, String message) {
-        kafkaTemplate.send(topic, message);
+    public CompletableFuture<Void> sendMessage(String topic, String key, Object event) {
+        long start = System.nanoTime();
+
+        ProducerRecord<String, byte[]> record;
+        try {
+            record = toRecord(topic, key, event);
+        } catch (RuntimeException e) {
+            return CompletableFuture.failedFuture(e);
+        }
+
+        if (spool != null && !spool.isEmpty()) {
+            return spool(record);
+        }
+
+        CompletableFuture<SendResult<String, byte[]>> sending;
+        try {
+            sending = kafkaTemplate.send(record);
+        } catch (RuntimeException e) {
+            sending = CompletableFuture.failedFuture(e);
+        }
+
+        CompletableFuture<Void> sent = sending
+                .whenComplete((result, e) -> record(topic, start, result, e))
+                .thenAccept(result -> {});
+
+        if (spool == null) {
+            return sent;
+        }
+        return sent
+                .handle((result, e) -> e != null && isBrokerUnavailable(e) ? spool(record) : sent)
+                .thenCompose(Function.identity());
+    }
+
+    private ProducerRecord<String, byte[]> toRecord(String topic, String key, Object event) {
+        EventCodec codec = eventCodecs.forTopic(topic);
+        ProducerRecord<String, byte[]> record = new ProducerRecord<>(topic, key, codec.encode(event));
+
+        record.headers().add(CONTENT_TYPE_HEADER, codec.contentType().getBytes(StandardCharsets.UTF_8));
+        EventSchemas.forType(event.getClass()).ifPresent(schema -> {
+            record.headers().add(SCHEMA_NAME_HEADER, schema.name().getBytes(StandardCharsets.UTF_8));
+            record.headers().add(SCHEMA_VERSION_HEADER, Integer.toString(schema.version()).getBytes(StandardCharsets.UTF_8));
+        });
+        return record;
+    }
+
+    private CompletableFuture<Void> spool(ProducerRecord<String, byte[]> record) {
+        try {
+            if (spool.append(record)) {
+                meterRegistry.counter("messaging.spool.appended", "topic", record.topic()).increment();
+                return CompletableFuture.completedFuture(null);
+            }
+        } catch (RuntimeException e) {
+            return CompletableFuture.failedFuture(e);
+        }
+        meterRegistry.counter("messaging.spool.rejected", "topic", record.topic()).increment();
+        return CompletableFuture.failedFuture(new IllegalStateException("Messaging spool is full"));
+    }
+
+    /**
+     * Retriable client errors: metadata or delivery timeouts and a full producer buffer
+     */
+    private static boolean isBrokerUnavailable(Throwable error) {
+        for (Throwable cause = error; cause != null; cause = cause.getCause()) {
+            if (cause instanceof RetriableException) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    private void record(String topic, long start, SendResult<String, byte[]> result, Throwable error) {
+        Timer.builder("messaging.send.latency")
+                .tag("topic", topic)
+                .tag("outcome", error == null ? "success" : "error")
+                .register(meterRegistry)
+                .record(System.nanoTime() - start, TimeUnit.NANOSECONDS);
+
+        if (error != null) {
+            Throwable cause = error instanceof CompletionException && error.getCause() != null ? error.getCause() : error;
+            meterRegistry.counter("messaging.send.errors", "topic", topic, "exception", cause.getClass().getSimpleName()).increment();
+            return;
+        }
+
+        DistributionSummary.builder("messaging.record.size")
+                .baseUnit("bytes")
+                .tag("topic", topic)
+                .register(meterRegistry)
+                .record(result.getRecordMetadata().serializedValueSize());
     }
 }
@@ -1,5 +1,11 @@
 package com.springcloud.demo.bookingsmicroservice.messaging;
 
+import java.util.concurrent.CompletableFuture;
+
 public interface MessagingProducer {
-    void sendMessage(String topic, String message);
+    /**
+     * The event is encoded as configured for the topic. Messages with the same key keep their order, unless they go through the spool.
+     * Completes once the broker acknowledged the message, or exceptionally when it was not accepted
+     */
+    CompletableFuture<Void> sendMessage(String topic, String key, Object event);
 }
@@ -1,20 +1,41 @@
 package com.springcloud.demo.bookingsmicroservice.messaging;
 
+import lombok.RequiredArgsConstructor;
+import org.apache.kafka.clients.admin.NewTopic;
 import org.springframework.context.annotation.Bean;
 import org.springframework.context.annotation.Configuration;
+import org.springframework.core.env.Environment;
 import org.springframework.kafka.config.TopicBuilder;
 import org.springframework.kafka.core.KafkaAdmin.NewTopics;
 
 @Configuration
+@RequiredArgsConstructor
 public class TopicsConfig {
+
+    private static final String TOPICS_PREFIX = "messaging.topics.";
+
+    private final Environment environment;
+
     @Bean
     public NewTopics topics() {
         return new NewTopics(
-                TopicBuilder.name("REVIEW_CREATED_TOPIC")
-                        .build(),
-                TopicBuilder.name("BOOKING_CREATED_TOPIC")
-                        .build(),
-                TopicBuilder.name("BOOKING_RECEIPT_GENERATED_TOPIC")
-                        .build());
+                topic("REVIEW_CREATED_TOPIC"),
+                topic("BOOKING_CREATED_TOPIC"),
+                topic("BOOKING_RECEIPT_GENERATED_TOPIC"));
+    }
+
+    /**
+     * Partitions and replicas from messaging.topics.&lt;topic&gt;, falling back to messaging.topics.default
+     */
+    private NewTopic topic(String topic) {
+        return TopicBuilder.name(environment.getProperty("spring.kafka.topics." + topic, topic))
+                .partitions(property(topic, "partitions", 1))
+                .replicas(property(topic, "replicas", 1))
+                .build();
+    }
+
+    private int property(String topic, String name, int defaultValue) {
+        Integer fallback = environment.getProperty(TOPICS_PREFIX + "default." + name, Integer.class, defaultValue);
+        return environment.getProperty(TOPICS_PREFIX + topic + "." + name, Integer.class, fallback);
     }
 }
@@ -0,0 +1,165 @@
+package com.springcloud.demo.bookingsmicroservice.messaging.codec;
+
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.node.ArrayNode;
+import com.fasterxml.jackson.databind.node.ObjectNode;
+import org.springframework.stereotype.Component;
+
+import java.io.ByteArrayOutputStream;
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+import java.util.UUID;
+
+/**
+ * Avro style encoding driven by {@link EventSchemas}: no field names, fields in schema order, each one
+ * prefixed by a presence byte. UUIDs take 16 bytes, ints are zigzag varints, strings and lists are
+ * prefixed by their varint length. Properties not in the schema are not written. Payloads are read with the
+ * schema version they were written with; trailing fields a payload ends before are read as null.
+ */
+@Component
+public class BinaryEventCodec implements EventCodec {
+
+    private static final ObjectMapper objectMapper = new ObjectMapper();
+
+    @Override
+    public String name() {
+        return "binary";
+    }
+
+    @Override
+    public String contentType() {
+        return "application/vnd.bookings.binary";
+    }
+
+    @Override
+    public byte[] encode(Object event) {
+        return encode(event, schemaOf(event.getClass()));
+    }
+
+    /**
+     * Decodes with the current schema of the type
+     */
+    @Override
+    public <T> T decode(byte[] data, Class<T> type) {
+        return decode(data, type, schemaOf(type));
+    }
+
+    @Override
+    public <T> T decode(byte[] data, Class<T> type, int schemaVersion) {
+        String name = schemaOf(type).name();
+        EventSchema schema = EventSchemas.forVersion(name, schemaVersion)
+                .orElseThrow(() -> new IllegalArgumentException("No binary schema " + name + " version " + schemaVersion));
+        return decode(data, type, schema);
+    }
+
+    byte[] encode(Object event, EventSchema schema) {
+        ByteArrayOutputStream out = new ByteArrayOutputStream(256);
+        write(objectMapper.valueToTree(event), schema, out);
+        return out.toByteArray();
+    }
+
+    <T> T decode(byte[] data, Class<T> type, EventSchema schema) {
+        ObjectNode node = read(ByteBuffer.wrap(data), schema);
+        try {
+            return objectMapper.treeToValue(node, type);
+        } catch (Exception e) {
+            throw new RuntimeException(e);
+        }
+    }
+
+    private static EventSchema schemaOf(Class<?> type) {
+        return EventSchemas.forType(type)
+                .orElseThrow(() -> new IllegalArgumentException("No binary schema for " + type.getSimpleName()));
+    }
+
+    private static void write(JsonNode node, EventSchema schema, ByteArrayOutputStream out) {
+        for (EventSchema.Field field : schema.fields()) {
+            JsonNode value = node.get(field.name());
+            if (value == null || value.isNull()) {
+                out.write(0);
+                continue;
+            }
+            out.write(1);
+
+            switch (field.type()) {
+                case UUID -> {
+                    UUID uuid = UUID.fromString(value.asText());
+                    writeLong(uuid.getMostSignificantBits(), out);
+                    writeLong(uuid.getLeastSignificantBits(), out);
+                }
+                case STRING -> writeString(value.asText(), out);
+                case INT -> writeVarint((value.asLong() << 1) ^ (value.asLong() >> 63), out);
+                case STRING_LIST -> {
+                    writeVarint(value.size(), out);
+                    value.forEach(element -> writeString(element.asText(), out));
+                }
+                case RECORD -> write(value, field.schema(), out);
+            }
+        }
+    }
+
+    private static ObjectNode read(ByteBuffer in, EventSchema schema) {
+        ObjectNode node = objectMapper.createObjectNode();
+        for (EventSchema.Field field : schema.fields()) {
+            if (!in.hasRemaining() || in.get() == 0) {
+                node.putNull(field.name());
+                continue;
+            }
+
+            switch (field.type()) {
+                case UUID -> node.put(field.name(), new UUID(in.getLong(), in.getLong()).toString());
+                case STRING -> node.put(field.name(), readString(in));
+                case INT -> {
+                    long zigzag = readVarint(in);
+                    node.put(field.name(), (int) ((zigzag >>> 1) ^ -(zigzag & 1)));
+                }
+                case STRING_LIST -> {
+                    ArrayNode array = node.putArray(field.name());
+                    for (long i = readVarint(in); i > 0; i--) {
+                        array.add(readString(in));
+                    }
+                }
+                case RECORD -> node.set(field.name(), read(in, field.schema()));
+            }
+        }
+        return node;
+    }
+
+    private static void writeLong(long value, ByteArrayOutputStream out) {
+        for (int shift = 56; shift >= 0; shift -= 8) {
+            out.write((int) (value >>> shift));
+        }
+    }
+
+    private static void writeString(String value, ByteArrayOutputStream out) {
+        byte[] bytes = value.getBytes(StandardCharsets.UTF_8);
+        writeVarint(bytes.length, out);
+        out.writeBytes(bytes);
+    }
+
+    private static void writeVarint(long value, ByteArrayOutputStream out) {
+        while ((value & ~0x7FL) != 0) {
+            out.write((int) ((value & 0x7F) | 0x80));
+            value >>>= 7;
+        }
+        out.write((int) value);
+    }
+
+    private static String readString(ByteBuffer in) {
+        byte[] bytes = new byte[(int) readVarint(in)];
+        in.get(bytes);
+        return new String(bytes, StandardCharsets.UTF_8);
+    }
+
+    private static long readVarint(ByteBuffer in) {
+        long value = 0;
+        for (int shift = 0; ; shift += 7) {
+            byte b = in.get();
+            value |= (long) (b & 0x7F) << shift;
+            if ((b & 0x80) == 0) {
+                return value;
+            }
+        }
+    }
+}
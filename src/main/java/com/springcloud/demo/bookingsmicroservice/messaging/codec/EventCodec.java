@@ -0,0 +1,29 @@
+package com.springcloud.demo.bookingsmicroservice.messaging.codec;
+
+/**
+ * Encoding of published events, selected per topic with messaging.encoding.&lt;topic&gt;
+ */
+public interface EventCodec {
+
+    /**
+     * Name used in messaging.encoding properties
+     */
+    String name();
+
+    /**
+     * Sent in the content-type header so consumers can tell encodings apart during a migration
+     */
+    String contentType();
+
+    byte[] encode(Object event);
+
+    <T> T decode(byte[] data, Class<T> type);
+
+    /**
+     * Decodes a payload written with the given schema-version header. Only encodings without field names
+     * depend on it
+     */
+    default <T> T decode(byte[] data, Class<T> type, int schemaVersion) {
+        return decode(data, type);
+    }
+}
@@ -0,0 +1,43 @@
+package com.springcloud.demo.bookingsmicroservice.messaging.codec;
+
+import org.springframework.core.env.Environment;
+import org.springframework.stereotype.Component;
+
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.function.Function;
+import java.util.stream.Collectors;
+
+/**
+ * Codec of each topic from messaging.encoding.&lt;topic&gt;, falling back to messaging.encoding.default
+ */
+@Component
+public class EventCodecs {
+
+    private static final String ENCODING_PREFIX = "messaging.encoding.";
+
+    private final Environment environment;
+    private final Map<String, EventCodec> byName;
+    private final Map<String, EventCodec> byTopic = new ConcurrentHashMap<>();
+
+    public EventCodecs(Environment environment, List<EventCodec> codecs) {
+        this.environment = environment;
+        this.byName = codecs.stream().collect(Collectors.toMap(EventCodec::name, Function.identity()));
+    }
+
+    public EventCodec forTopic(String topic) {
+        return byTopic.computeIfAbsent(topic, this::resolve);
+    }
+
+    private EventCodec resolve(String topic) {
+        String name = environment.getProperty(ENCODING_PREFIX + topic,
+                environment.getProperty(ENCODING_PREFIX + "default", "json"));
+
+        EventCodec codec = byName.get(name);
+        if (codec == null) {
+            throw new IllegalStateException("Unknown encoding " + name + " for topic " + topic + ". Available: " + byName.keySet());
+        }
+        return codec;
+    }
+}
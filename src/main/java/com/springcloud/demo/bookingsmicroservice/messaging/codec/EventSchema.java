@@ -0,0 +1,32 @@
+package com.springcloud.demo.bookingsmicroservice.messaging.codec;
+
+import java.util.List;
+
+/**
+ * Ordered fields of an event, as written by {@link BinaryEventCodec}. Every field is nullable.
+ * Fields can only be appended, and doing so requires a new version.
+ */
+public record EventSchema(String name, int version, List<Field> fields) {
+
+    public enum Type {
+        UUID,
+        STRING,
+        INT,
+        STRING_LIST,
+        RECORD
+    }
+
+    /**
+     * @param schema nested schema of RECORD fields, null otherwise
+     */
+    public record Field(String name, Type type, EventSchema schema) {
+    }
+
+    static Field field(String name, Type type) {
+        return new Field(name, type, null);
+    }
+
+    static Field record(String name, EventSchema schema) {
+        return new Field(name, Type.RECORD, schema);
+    }
+}
@@ -0,0 +1,100 @@
+package com.springcloud.demo.bookingsmicroservice.messaging.codec;
+
+import com.springcloud.demo.bookingsmicroservice.booking.dto.PublishBookingEventDTO;
+import com.springcloud.demo.bookingsmicroservice.booking.dto.ResponseBookingDTO;
+
+import java.util.List;
+import java.util.Map;
+import java.util.NavigableMap;
+import java.util.Optional;
+import java.util.TreeMap;
+import java.util.function.Function;
+import java.util.stream.Collectors;
+
+import static com.springcloud.demo.bookingsmicroservice.messaging.codec.EventSchema.Type.*;
+import static com.springcloud.demo.bookingsmicroservice.messaging.codec.EventSchema.field;
+import static com.springcloud.demo.bookingsmicroservice.messaging.codec.EventSchema.record;
+
+/**
+ * Embedded schema registry: the current schema of every published event type, and every version published
+ * so far by (name, version). To change an event, keep its schema constant as is, add one with the field
+ * appended and the version bumped, point BY_TYPE at it and list both in VERSIONS. Nested schemas are part of
+ * their parent's layout, so appending to USER or ROOM also means a new version of every schema using them.
+ */
+public final class EventSchemas {
+
+    static final EventSchema USER = new EventSchema("User", 1, List.of(
+            field("id", UUID),
+            field("email", STRING),
+            field("name", STRING)));
+
+    static final EventSchema ROOM = new EventSchema("Room", 1, List.of(
+            field("id", UUID),
+            field("num", INT),
+            field("name", STRING),
+            field("floor", INT),
+            field("maxCapacity", INT),
+            field("description", STRING),
+            field("ownerId", STRING),
+            field("images", STRING_LIST),
+            field("simpleBeds", INT),
+            field("mediumBeds", INT),
+            field("doubleBeds", INT),
+            record("owner", USER)));
+
+    static final EventSchema BOOKING_CREATED = new EventSchema("BookingCreated", 1, List.of(
+            field("id", UUID),
+            field("createdAt", STRING),
+            field("receiptUrl", STRING),
+            field("checkIn", STRING),
+            field("checkOut", STRING),
+            field("status", STRING),
+            field("rating", INT),
+            field("review", STRING),
+            record("user", USER),
+            record("room", ROOM)));
+
+    static final EventSchema BOOKING = new EventSchema("Booking", 1, List.of(
+            field("id", UUID),
+            field("createdAt", STRING),
+            field("receiptUrl", STRING),
+            field("checkIn", STRING),
+            field("checkOut", STRING),
+            field("userId", UUID),
+            field("roomId", UUID),
+            field("status", STRING),
+            field("rating", INT),
+            field("review", STRING)));
+
+    private static final Map<Class<?>, EventSchema> BY_TYPE = Map.of(
+            PublishBookingEventDTO.class, BOOKING_CREATED,
+            ResponseBookingDTO.class, BOOKING);
+
+    private static final List<EventSchema> VERSIONS = List.of(
+            BOOKING_CREATED,
+            BOOKING);
+
+    private static final Map<String, NavigableMap<Integer, EventSchema>> BY_NAME = VERSIONS
+            .stream()
+            .collect(Collectors.groupingBy(EventSchema::name,
+                    Collectors.toMap(EventSchema::version, Function.identity(), (a, b) -> a, TreeMap::new)));
+
+    private EventSchemas() {
+    }
+
+    public static Optional<EventSchema> forType(Class<?> type) {
+        return Optional.ofNullable(BY_TYPE.get(type));
+    }
+
+    /**
+     * The schema a payload was written with. A version newer than any known here resolves to the latest
+     * known one, which reads the fields it shares with it since fields are only appended
+     */
+    public static Optional<EventSchema> forVersion(String name, int version) {
+        NavigableMap<Integer, EventSchema> versions = BY_NAME.get(name);
+        if (versions == null) {
+            return Optional.empty();
+        }
+        return Optional.ofNullable(versions.floorEntry(version)).map(Map.Entry::getValue);
+    }
+}
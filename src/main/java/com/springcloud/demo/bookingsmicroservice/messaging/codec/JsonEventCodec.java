@@ -0,0 +1,33 @@
+package com.springcloud.demo.bookingsmicroservice.messaging.codec;
+
+import com.springcloud.demo.bookingsmicroservice.utils.JsonUtils;
+import org.springframework.stereotype.Component;
+
+import java.nio.charset.StandardCharsets;
+
+/**
+ * Same bytes as the String messages published before encodings were selectable
+ */
+@Component
+public class JsonEventCodec implements EventCodec {
+
+    @Override
+    public String name() {
+        return "json";
+    }
+
+    @Override
+    public String contentType() {
+        return "application/json";
+    }
+
+    @Override
+    public byte[] encode(Object event) {
+        return JsonUtils.toJson(event).getBytes(StandardCharsets.UTF_8);
+    }
+
+    @Override
+    public <T> T decode(byte[] data, Class<T> type) {
+        return JsonUtils.fromJson(new String(data, StandardCharsets.UTF_8), type);
+    }
+}
@@ -0,0 +1,337 @@
+package com.springcloud.demo.bookingsmicroservice.messaging.spool;
+
+import org.apache.kafka.clients.producer.ProducerRecord;
+import org.apache.kafka.common.header.Header;
+import org.apache.kafka.common.header.internals.RecordHeader;
+import org.apache.kafka.common.header.internals.RecordHeaders;
+
+import java.io.*;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.TreeMap;
+import java.util.stream.Stream;
+
+/**
+ * Bounded append-only spool of producer records in memory-mapped segment files, read back in append order.
+ * Each entry is [int length][record]: the length is written after the record and negated once the record is
+ * replayed, and a zero length marks the end of the written part. Segments are deleted once fully replayed.
+ * Appends are forced to disk before they return, so pending records survive a crash or a restart as long as the
+ * directory is on a persistent volume; a record replayed right before a crash may be replayed again.
+ * Records the broker rejects for good are moved to a dead-letter spool in the dead-letter subdirectory.
+ */
+public class DiskSpool implements Closeable {
+
+    private static final String SUFFIX = ".spool";
+    private static final String DEAD_LETTER_DIRECTORY = "dead-letter";
+
+    private final Path directory;
+    private final int segmentSize;
+    private final int maxSegments;
+
+    private final TreeMap<Long, Segment> segments = new TreeMap<>();
+    private int readPosition;
+    private long pending;
+    private DiskSpool deadLetters;
+
+    public DiskSpool(Path directory, int segmentSize, int maxSegments) throws IOException {
+        this.directory = directory;
+        this.segmentSize = segmentSize;
+        this.maxSegments = maxSegments;
+
+        Files.createDirectories(directory);
+        try (Stream<Path> files = Files.list(directory)) {
+            for (Path path : files.filter(file -> file.getFileName().toString().endsWith(SUFFIX)).toList()) {
+                String name = path.getFileName().toString();
+                long sequence = Long.parseLong(name.substring(0, name.length() - SUFFIX.length()));
+                Segment segment = Segment.open(path, sequence, segmentSize);
+                pending += segment.scan();
+                segments.put(sequence, segment);
+            }
+        }
+        advanceReadPosition();
+    }
+
+    /**
+     * Returns false when the record does not fit in the spool
+     */
+    public synchronized boolean append(ProducerRecord<String, byte[]> record) {
+        byte[] entry = encode(record);
+        if (Integer.BYTES + entry.length > segmentSize) {
+            return false;
+        }
+
+        Map.Entry<Long, Segment> last = segments.lastEntry();
+        Segment tail = last == null ? null : last.getValue();
+        if (tail == null || tail.remaining() < Integer.BYTES + entry.length) {
+            if (segments.size() >= maxSegments) {
+                return false;
+            }
+            if (tail != null) {
+                tail.buffer.force();
+            }
+            long sequence = last == null ? 0 : last.getKey() + 1;
+            try {
+                tail = Segment.open(directory.resolve("%020d%s".formatted(sequence, SUFFIX)), sequence, segmentSize);
+            } catch (IOException e) {
+                throw new UncheckedIOException(e);
+            }
+            segments.put(sequence, tail);
+        }
+
+        tail.write(entry);
+        pending++;
+        return true;
+    }
+
+    /**
+     * Moves the record to the dead-letter spool and marks it replayed. Returns false when the dead-letter
+     * spool is full, the record is dropped from this spool anyway so it stops blocking the ones after it
+     */
+    public synchronized boolean deadLetter(SpooledRecord record) {
+        boolean stored;
+        try {
+            if (deadLetters == null) {
+                deadLetters = new DiskSpool(directory.resolve(DEAD_LETTER_DIRECTORY), segmentSize, maxSegments);
+            }
+            stored = deadLetters.append(record.record());
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+        markReplayed(record);
+        return stored;
+    }
+
+    /**
+     * Up to max pending records, oldest first, without consuming them
+     */
+    public synchronized List<SpooledRecord> peek(int max) {
+        List<SpooledRecord> found = new ArrayList<>();
+        boolean first = true;
+
+        for (Segment segment : segments.values()) {
+            int position = first ? readPosition : 0;
+            first = false;
+
+            while (found.size() < max) {
+                int length = segment.lengthAt(position);
+                if (length == 0) {
+                    break;
+                }
+                if (length > 0) {
+                    found.add(new SpooledRecord(segment.sequence, position, decode(segment.read(position, length))));
+                }
+                position += Integer.BYTES + Math.abs(length);
+            }
+            if (found.size() >= max) {
+                break;
+            }
+        }
+        return found;
+    }
+
+    public synchronized void markReplayed(SpooledRecord record) {
+        Segment segment = segments.get(record.segment());
+        if (segment == null) {
+            return;
+        }
+
+        int length = segment.lengthAt(record.position());
+        if (length > 0) {
+            segment.buffer.putInt(record.position(), -length);
+            pending--;
+        }
+        advanceReadPosition();
+    }
+
+    public synchronized boolean isEmpty() {
+        return pending == 0;
+    }
+
+    public synchronized long size() {
+        return pending;
+    }
+
+    @Override
+    public synchronized void close() throws IOException {
+        if (deadLetters != null) {
+            deadLetters.close();
+        }
+        for (Segment segment : segments.values()) {
+            segment.buffer.force();
+            segment.channel.close();
+        }
+        segments.clear();
+    }
+
+    /**
+     * Moves past replayed entries, deleting segments left behind unless they are still written to
+     */
+    private void advanceReadPosition() {
+        while (!segments.isEmpty()) {
+            Segment head = segments.firstEntry().getValue();
+            int length = head.lengthAt(readPosition);
+
+            if (length > 0) {
+                return;
+            }
+            if (length < 0) {
+                readPosition += Integer.BYTES - length;
+                continue;
+            }
+            if (segments.size() == 1) {
+                return;
+            }
+
+            segments.pollFirstEntry();
+            readPosition = 0;
+            try {
+                head.channel.close();
+                Files.deleteIfExists(head.path);
+            } catch (IOException e) {
+                throw new UncheckedIOException(e);
+            }
+        }
+    }
+
+    private static byte[] encode(ProducerRecord<String, byte[]> record) {
+        ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+        try (DataOutputStream out = new DataOutputStream(bytes)) {
+            out.writeUTF(record.topic());
+            writeBytes(record.key() == null ? null : record.key().getBytes(StandardCharsets.UTF_8), out);
+
+            Header[] headers = record.headers().toArray();
+            out.writeInt(headers.length);
+            for (Header header : headers) {
+                out.writeUTF(header.key());
+                writeBytes(header.value(), out);
+            }
+
+            writeBytes(record.value(), out);
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+        return bytes.toByteArray();
+    }
+
+    private static ProducerRecord<String, byte[]> decode(byte[] entry) {
+        try (DataInputStream in = new DataInputStream(new ByteArrayInputStream(entry))) {
+            String topic = in.readUTF();
+            byte[] key = readBytes(in);
+
+            RecordHeaders headers = new RecordHeaders();
+            for (int i = in.readInt(); i > 0; i--) {
+                headers.add(new RecordHeader(in.readUTF(), readBytes(in)));
+            }
+
+            byte[] value = readBytes(in);
+            return new ProducerRecord<>(topic, null, key == null ? null : new String(key, StandardCharsets.UTF_8), value, headers);
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+    }
+
+    private static void writeBytes(byte[] value, DataOutputStream out) throws IOException {
+        if (value == null) {
+            out.writeInt(-1);
+            return;
+        }
+        out.writeInt(value.length);
+        out.write(value);
+    }
+
+    private static byte[] readBytes(DataInputStream in) throws IOException {
+        int length = in.readInt();
+        if (length < 0) {
+            return null;
+        }
+        byte[] value = new byte[length];
+        in.readFully(value);
+        return value;
+    }
+
+    public record SpooledRecord(long segment, int position, ProducerRecord<String, byte[]> record) {
+    }
+
+    private static final class Segment {
+
+        private final long sequence;
+        private final Path path;
+        private final FileChannel channel;
+        private final MappedByteBuffer buffer;
+        private int writePosition;
+
+        private Segment(long sequence, Path path, FileChannel channel, MappedByteBuffer buffer) {
+            this.sequence = sequence;
+            this.path = path;
+            this.channel = channel;
+            this.buffer = buffer;
+        }
+
+        /**
+         * Existing files keep the size they were created with
+         */
+        static Segment open(Path path, long sequence, int segmentSize) throws IOException {
+            FileChannel channel = FileChannel.open(path, StandardOpenOption.CREATE, StandardOpenOption.READ, StandardOpenOption.WRITE);
+            long capacity = channel.size() > 0 ? channel.size() : segmentSize;
+            return new Segment(sequence, path, channel, channel.map(FileChannel.MapMode.READ_WRITE, 0, capacity));
+        }
+
+        /**
+         * Finds the end of the written part and returns how many records are still pending
+         */
+        int scan() {
+            int count = 0;
+            int position = 0;
+            for (int length = lengthAt(position); length != 0; length = lengthAt(position)) {
+                if (length > 0) {
+                    count++;
+                }
+                position += Integer.BYTES + Math.abs(length);
+            }
+            writePosition = position;
+            return count;
+        }
+
+        /**
+         * Zero at the end of the written part, including a length that runs past the segment (torn write)
+         */
+        int lengthAt(int position) {
+            if (position + Integer.BYTES > buffer.capacity()) {
+                return 0;
+            }
+            int length = buffer.getInt(position);
+            if (length == Integer.MIN_VALUE || (long) position + Integer.BYTES + Math.abs(length) > buffer.capacity()) {
+                return 0;
+            }
+            return length;
+        }
+
+        int remaining() {
+            return buffer.capacity() - writePosition;
+        }
+
+        /**
+         * The record is forced before its length, so a crash never leaves a length pointing at unwritten bytes
+         */
+        void write(byte[] entry) {
+            buffer.put(writePosition + Integer.BYTES, entry);
+            buffer.force(writePosition + Integer.BYTES, entry.length);
+            buffer.putInt(writePosition, entry.length);
+            buffer.force(writePosition, Integer.BYTES);
+            writePosition += Integer.BYTES + entry.length;
+        }
+
+        byte[] read(int position, int length) {
+            byte[] entry = new byte[length];
+            buffer.get(position + Integer.BYTES, entry);
+            return entry;
+        }
+    }
+}
@@ -0,0 +1,36 @@
+package com.springcloud.demo.bookingsmicroservice.messaging.spool;
+
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.util.unit.DataSize;
+
+import java.io.IOException;
+import java.nio.file.Path;
+
+@Configuration
+@ConditionalOnProperty(name = "messaging.spool.enabled", havingValue = "true")
+public class SpoolConfig {
+
+    /**
+     * Spooled records are acknowledged to the outbox as sent, so the directory must be on a persistent volume
+     * that follows the instance across restarts and reschedules, and must not be shared with other instances
+     */
+    @Bean(destroyMethod = "close")
+    public DiskSpool diskSpool(
+            MeterRegistry meterRegistry,
+            @Value("${messaging.spool.directory:}") String directory,
+            @Value("${messaging.spool.segment-size:64MB}") DataSize segmentSize,
+            @Value("${messaging.spool.max-segments:16}") int maxSegments
+    ) throws IOException {
+        if (directory.isBlank()) {
+            throw new IllegalStateException("messaging.spool.directory must be set to a persistent volume when the spool is enabled");
+        }
+        DiskSpool spool = new DiskSpool(Path.of(directory), (int) segmentSize.toBytes(), maxSegments);
+        Gauge.builder("messaging.spool.pending", spool, DiskSpool::size).register(meterRegistry);
+        return spool;
+    }
+}
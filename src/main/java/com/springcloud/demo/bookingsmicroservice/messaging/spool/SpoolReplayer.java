@@ -0,0 +1,162 @@
+package com.springcloud.demo.bookingsmicroservice.messaging.spool;
+
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.MeterRegistry;
+import lombok.extern.slf4j.Slf4j;
+import org.apache.kafka.common.errors.RetriableException;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.kafka.core.KafkaTemplate;
+import org.springframework.kafka.support.SendResult;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+
+/**
+ * Sends spooled records in append order, a batch at a time. Records the broker rejects for good (too large,
+ * not authorized, invalid) are dead-lettered. A batch stops at the first record that fails with a retriable
+ * error, which is retried with everything after it on the next run; if records after it were acknowledged the
+ * broker is up and the failure is the record's own (e.g. its topic is gone), so it is dead-lettered after
+ * max-attempts such runs.
+ */
+@Slf4j
+@Component
+@ConditionalOnProperty(name = "messaging.spool.enabled", havingValue = "true")
+public class SpoolReplayer {
+
+    private final KafkaTemplate<String, byte[]> kafkaTemplate;
+    private final DiskSpool spool;
+    private final int batchSize;
+    private final int maxAttempts;
+    private final Duration sendTimeout;
+    private final Counter replayedCounter;
+    private final Counter deadLetteredCounter;
+
+    private final Map<Position, Integer> failedAttempts = new HashMap<>();
+
+    public SpoolReplayer(
+            KafkaTemplate<String, byte[]> kafkaTemplate,
+            DiskSpool spool,
+            MeterRegistry meterRegistry,
+            @Value("${messaging.spool.replay-batch-size:500}") int batchSize,
+            @Value("${messaging.spool.max-attempts:10}") int maxAttempts,
+            @Value("${messaging.spool.send-timeout:PT30S}") Duration sendTimeout
+    ) {
+        this.kafkaTemplate = kafkaTemplate;
+        this.spool = spool;
+        this.batchSize = batchSize;
+        this.maxAttempts = maxAttempts;
+        this.sendTimeout = sendTimeout;
+        this.replayedCounter = meterRegistry.counter("messaging.spool.replayed");
+        this.deadLetteredCounter = meterRegistry.counter("messaging.spool.dead-lettered");
+    }
+
+    @Scheduled(fixedDelayString = "${messaging.spool.replay-interval:PT1S}")
+    public void replay() {
+        List<DiskSpool.SpooledRecord> batch = spool.peek(batchSize);
+        while (!batch.isEmpty() && replayBatch(batch)) {
+            batch = spool.peek(batchSize);
+        }
+    }
+
+    /**
+     * Returns false when the batch stopped at a record to retry
+     */
+    boolean replayBatch(List<DiskSpool.SpooledRecord> batch) {
+        List<CompletableFuture<SendResult<String, byte[]>>> sending = new ArrayList<>(batch.size());
+        for (DiskSpool.SpooledRecord spooled : batch) {
+            try {
+                sending.add(kafkaTemplate.send(spooled.record()));
+            } catch (RuntimeException e) {
+                sending.add(CompletableFuture.failedFuture(e));
+            }
+        }
+
+        List<Throwable> errors = new ArrayList<>(sending.size());
+        for (CompletableFuture<SendResult<String, byte[]>> future : sending) {
+            errors.add(await(future));
+        }
+
+        for (int i = 0; i < batch.size(); i++) {
+            DiskSpool.SpooledRecord spooled = batch.get(i);
+            Throwable error = errors.get(i);
+
+            if (error instanceof InterruptedException) {
+                return false;
+            }
+            if (error == null) {
+                replayed(spooled);
+                replayedCounter.increment();
+            } else if (!isRetriable(error) || exhausted(spooled, errors.subList(i + 1, errors.size()))) {
+                deadLetter(spooled, error);
+            } else {
+                log.warn("Broker still unavailable, {} records left in the spool", spool.size(), error);
+                return false;
+            }
+        }
+        return true;
+    }
+
+    private Throwable await(CompletableFuture<SendResult<String, byte[]>> future) {
+        try {
+            future.get(sendTimeout.toMillis(), TimeUnit.MILLISECONDS);
+            return null;
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            return e;
+        } catch (ExecutionException e) {
+            return e.getCause() == null ? e : e.getCause();
+        } catch (Exception e) {
+            return e;
+        }
+    }
+
+    /**
+     * Counts a retriable failure against the record only when a later record was acknowledged
+     */
+    private boolean exhausted(DiskSpool.SpooledRecord spooled, List<Throwable> laterErrors) {
+        if (!laterErrors.contains(null)) {
+            return false;
+        }
+        return failedAttempts.merge(Position.of(spooled), 1, Integer::sum) >= maxAttempts;
+    }
+
+    private void deadLetter(DiskSpool.SpooledRecord spooled, Throwable error) {
+        failedAttempts.remove(Position.of(spooled));
+        deadLetteredCounter.increment();
+        if (spool.deadLetter(spooled)) {
+            log.error("Spooled record for {} rejected by the broker, moved to the dead-letter spool", spooled.record().topic(), error);
+        } else {
+            log.error("Spooled record for {} rejected by the broker and dropped, the dead-letter spool is full", spooled.record().topic(), error);
+        }
+    }
+
+    private void replayed(DiskSpool.SpooledRecord spooled) {
+        failedAttempts.remove(Position.of(spooled));
+        spool.markReplayed(spooled);
+    }
+
+    private static boolean isRetriable(Throwable error) {
+        for (Throwable cause = error; cause != null; cause = cause.getCause()) {
+            if (cause instanceof RetriableException || cause instanceof TimeoutException) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    private record Position(long segment, int position) {
+        static Position of(DiskSpool.SpooledRecord spooled) {
+            return new Position(spooled.segment(), spooled.position());
+        }
+    }
+}
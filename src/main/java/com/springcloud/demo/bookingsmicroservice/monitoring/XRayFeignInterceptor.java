@@ -8,7 +8,12 @@ import feign.RequestTemplate;
 public class XRayFeignInterceptor implements RequestInterceptor {
     @Override
     public void apply(RequestTemplate requestTemplate) {
-        Segment segment = AWSXRay.getCurrentSegment();
+        // Background calls (e.g. cache refreshes) run outside any request segment
+        Segment segment = AWSXRay.getCurrentSegmentOptional().orElse(null);
+        if (segment == null) {
+            return;
+        }
+
         String traceId = segment.getTraceId().toString();
         String parentId = segment.getId();
 
@@ -0,0 +1,41 @@
+package com.springcloud.demo.bookingsmicroservice.monitoring;
+
+import com.amazonaws.xray.AWSXRay;
+import com.amazonaws.xray.entities.Entity;
+import org.springframework.core.task.TaskDecorator;
+
+/**
+ * Runs the task with the trace entity of the submitting thread, so Feign calls made on worker threads
+ * are still tagged by {@link XRayFeignInterceptor}
+ */
+public class XRayTaskDecorator implements TaskDecorator {
+    @Override
+    public Runnable decorate(Runnable runnable) {
+        return withTraceEntity(AWSXRay.getTraceEntity(), runnable);
+    }
+
+    /**
+     * Runs the task with the given trace entity, captured earlier on another thread. The entity the running
+     * thread had before is put back afterwards, as the task may run on the submitting thread itself
+     * (e.g. CallerRunsPolicy)
+     */
+    public static Runnable withTraceEntity(Entity entity, Runnable runnable) {
+        if (entity == null) {
+            return runnable;
+        }
+
+        return () -> {
+            Entity previous = AWSXRay.getTraceEntity();
+            AWSXRay.setTraceEntity(entity);
+            try {
+                runnable.run();
+            } finally {
+                if (previous == null) {
+                    AWSXRay.clearTraceEntity();
+                } else {
+                    AWSXRay.setTraceEntity(previous);
+                }
+            }
+        };
+    }
+}
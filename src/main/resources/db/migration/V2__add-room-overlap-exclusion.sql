@@ -0,0 +1,31 @@
+CREATE EXTENSION IF NOT EXISTS btree_gist;
+
+-- The previous BETWEEN check let overlapping BOOKED rows of a room through, and the constraint cannot be added
+-- while any remain. Which booking to keep is a business decision, so stop and list them for an operator to resolve
+DO $$
+DECLARE
+    overlaps TEXT;
+BEGIN
+    SELECT string_agg(format('room %s: %s and %s', b.room_id, b.id, o.id), E'\n' ORDER BY b.room_id, b.id, o.id)
+    INTO overlaps
+    FROM bookings b
+    JOIN bookings o ON o.room_id = b.room_id
+        AND o.id > b.id
+        AND o.status = 'BOOKED'
+        AND tstzrange(o.check_in, o.check_out, '[)') && tstzrange(b.check_in, b.check_out, '[)')
+    WHERE b.status = 'BOOKED';
+
+    IF overlaps IS NOT NULL THEN
+        RAISE EXCEPTION 'Overlapping BOOKED bookings prevent adding bookings_room_no_overlap'
+            USING DETAIL = overlaps,
+                  HINT = 'Cancel or move one booking of each pair, then run the migration again';
+    END IF;
+END $$;
+
+ALTER TABLE bookings
+    ADD COLUMN booked_range TSTZRANGE GENERATED ALWAYS AS (tstzrange(check_in, check_out, '[)')) STORED;
+
+ALTER TABLE bookings
+    ADD CONSTRAINT bookings_room_no_overlap
+    EXCLUDE USING gist (room_id WITH =, booked_range WITH &&)
+    WHERE (status = 'BOOKED');
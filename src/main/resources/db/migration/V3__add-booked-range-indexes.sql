@@ -0,0 +1,11 @@
+CREATE INDEX bookings_room_booked_range_idx
+    ON bookings (room_id, check_in, check_out)
+    WHERE status = 'BOOKED';
+
+CREATE INDEX bookings_user_booked_range_idx
+    ON bookings (user_id, check_in, check_out)
+    WHERE status = 'BOOKED';
+
+CREATE INDEX bookings_booked_check_out_idx
+    ON bookings (check_out)
+    WHERE status = 'BOOKED';
@@ -0,0 +1,6 @@
+CREATE TABLE room_owners(
+    room_id UUID NOT NULL,
+    owner_id VARCHAR(36) NOT NULL,
+    updated_at TIMESTAMPTZ DEFAULT now(),
+    PRIMARY KEY(room_id)
+);
@@ -0,0 +1,12 @@
+CREATE TABLE outbox_events(
+    id BIGSERIAL,
+    event_type VARCHAR(50) NOT NULL,
+    aggregate_id UUID NOT NULL,
+    payload TEXT NOT NULL,
+    created_at TIMESTAMPTZ DEFAULT now(),
+    sent_at TIMESTAMPTZ,
+    PRIMARY KEY(id)
+);
+
+-- The relay only ever reads unsent rows in insertion order
+CREATE INDEX outbox_events_unsent_idx ON outbox_events (id) WHERE sent_at IS NULL;
@@ -0,0 +1,9 @@
+-- available_at is both the relay lease of a claimed row and the backoff of a failed one.
+-- Rows that keep failing are dead-lettered with failed_at and no longer claimed
+ALTER TABLE outbox_events ADD COLUMN attempts INT NOT NULL DEFAULT 0;
+ALTER TABLE outbox_events ADD COLUMN last_error TEXT;
+ALTER TABLE outbox_events ADD COLUMN available_at TIMESTAMPTZ;
+ALTER TABLE outbox_events ADD COLUMN failed_at TIMESTAMPTZ;
+
+DROP INDEX outbox_events_unsent_idx;
+CREATE INDEX outbox_events_pending_idx ON outbox_events (id) WHERE sent_at IS NULL AND failed_at IS NULL;
@@ -0,0 +1,7 @@
+-- Kafka key of the event. The relay publishes the rows of a key one at a time, in id order
+ALTER TABLE outbox_events ADD COLUMN message_key VARCHAR(100);
+
+UPDATE outbox_events SET message_key = payload::jsonb -> 'room' ->> 'id' WHERE event_type = 'BOOKING_CREATED';
+UPDATE outbox_events SET message_key = aggregate_id::text WHERE event_type = 'REVIEW_CREATED';
+
+CREATE INDEX outbox_events_pending_key_idx ON outbox_events (message_key, id) WHERE sent_at IS NULL AND failed_at IS NULL;
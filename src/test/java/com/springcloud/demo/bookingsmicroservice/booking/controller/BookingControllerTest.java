@@ -21,6 +21,7 @@ import org.springframework.test.web.servlet.MockMvc;
 import org.springframework.test.web.servlet.request.MockMvcRequestBuilders;
 import org.springframework.test.web.servlet.result.MockMvcResultMatchers;
 
+import java.time.LocalDate;
 import java.time.OffsetDateTime;
 import java.util.List;
 import java.util.UUID;
@@ -191,6 +192,78 @@ class BookingControllerTest {
         }
     }
 
+    @Nested
+    class SearchAvailability {
+        @Test
+        void searchAvailability() throws Exception {
+            SearchAvailabilityDTO searchAvailabilityDTO = SearchAvailabilityDTO
+                    .builder()
+                    .roomIds(List.of(UUID.randomUUID().toString(), UUID.randomUUID().toString()))
+                    .checkIn(OffsetDateTime.now().plusDays(1).toString())
+                    .checkOut(OffsetDateTime.now().plusDays(3).toString())
+                    .build();
+            given(bookingService.searchAvailability(any(SearchAvailabilityDTO.class))).willReturn(new AvailableRoomsDTO());
+
+            mockMvc
+                    .perform(
+                            MockMvcRequestBuilders
+                                    .post("/api/bookings/availability/search")
+                                    .contentType(MediaType.APPLICATION_JSON)
+                                    .content(objectMapper.writeValueAsString(searchAvailabilityDTO))
+                    )
+                    .andExpect(MockMvcResultMatchers.status().is(HttpStatus.OK.value()))
+                    .andExpect(MockMvcResultMatchers.content().json(objectMapper.writeValueAsString(new AvailableRoomsDTO())));
+            verify(bookingService).searchAvailability(searchAvailabilityDTO);
+        }
+
+        @Test
+        void errorWhenFieldsNotValid() throws Exception {
+            SearchAvailabilityDTO searchAvailabilityDTO = SearchAvailabilityDTO
+                    .builder()
+                    .roomIds(List.of("abcd1234"))
+                    .build();
+
+            mockMvc
+                    .perform(
+                            MockMvcRequestBuilders
+                                    .post("/api/bookings/availability/search")
+                                    .contentType(MediaType.APPLICATION_JSON)
+                                    .content(objectMapper.writeValueAsString(searchAvailabilityDTO))
+                    )
+                    .andExpect(MockMvcResultMatchers.status().is(HttpStatus.BAD_REQUEST.value()))
+                    .andExpect(MockMvcResultMatchers.jsonPath("$.errors.size()").value(3));
+            verify(bookingService, never()).searchAvailability(any());
+        }
+    }
+
+    @Nested
+    class FindRoomAvailability {
+        @Test
+        void findRoomAvailability() throws Exception {
+            String roomId = UUID.randomUUID().toString();
+            given(bookingService.findRoomAvailability(anyString(), any(LocalDate.class), any(LocalDate.class))).willReturn(new RoomAvailabilityDTO());
+
+            mockMvc
+                    .perform(
+                            MockMvcRequestBuilders
+                                    .get("/api/bookings/rooms/" + roomId + "/availability")
+                                    .queryParam("from", "2030-01-01")
+                                    .queryParam("to", "2030-12-31")
+                    )
+                    .andExpect(MockMvcResultMatchers.status().is(HttpStatus.OK.value()))
+                    .andExpect(MockMvcResultMatchers.content().json(objectMapper.writeValueAsString(new RoomAvailabilityDTO())));
+            verify(bookingService).findRoomAvailability(roomId, LocalDate.of(2030, 1, 1), LocalDate.of(2030, 12, 31));
+        }
+
+        @Test
+        void errorWhenMissingRange() throws Exception {
+            mockMvc
+                    .perform(MockMvcRequestBuilders.get("/api/bookings/rooms/" + UUID.randomUUID() + "/availability"))
+                    .andExpect(MockMvcResultMatchers.status().is(HttpStatus.BAD_REQUEST.value()));
+            verify(bookingService, never()).findRoomAvailability(anyString(), any(), any());
+        }
+    }
+
     @Nested
     class UpdateStatus {
 
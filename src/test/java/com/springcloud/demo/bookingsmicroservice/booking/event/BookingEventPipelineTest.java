@@ -0,0 +1,119 @@
+package com.springcloud.demo.bookingsmicroservice.booking.event;
+
+import com.springcloud.demo.bookingsmicroservice.booking.dto.PublishBookingEventDTO;
+import com.springcloud.demo.bookingsmicroservice.booking.mapper.BookingMapper;
+import com.springcloud.demo.bookingsmicroservice.booking.model.Booking;
+import com.springcloud.demo.bookingsmicroservice.booking.model.BookingStatus;
+import com.springcloud.demo.bookingsmicroservice.client.rooms.dto.RoomDTO;
+import com.springcloud.demo.bookingsmicroservice.client.users.UserClientImpl;
+import com.springcloud.demo.bookingsmicroservice.client.users.UserDTO;
+import com.springcloud.demo.bookingsmicroservice.exceptions.InheritedException;
+import com.springcloud.demo.bookingsmicroservice.messaging.MessagingProducer;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+
+import java.time.Duration;
+import java.time.OffsetDateTime;
+import java.util.UUID;
+import java.util.concurrent.CompletableFuture;
+
+import static org.assertj.core.api.Assertions.*;
+import static org.mockito.BDDMockito.*;
+
+@ExtendWith(MockitoExtension.class)
+class BookingEventPipelineTest {
+
+    @Mock
+    private UserClientImpl userClient;
+
+    @Mock
+    private MessagingProducer messagingProducer;
+
+    SimpleMeterRegistry meterRegistry;
+    BookingEventPipeline pipeline;
+    Booking booking;
+    RoomDTO room;
+    PublishBookingEventDTO event;
+
+    @BeforeEach
+    void setup() {
+        meterRegistry = new SimpleMeterRegistry();
+        pipeline = new BookingEventPipeline(userClient, messagingProducer, meterRegistry, "topic1", 2, 100, 3, Duration.ofMillis(10));
+        booking = Booking.builder()
+                .id(UUID.randomUUID())
+                .roomId(UUID.randomUUID())
+                .userId(UUID.randomUUID())
+                .checkIn(OffsetDateTime.now().plusDays(1))
+                .checkOut(OffsetDateTime.now().plusDays(3))
+                .createdAt(OffsetDateTime.now())
+                .status(BookingStatus.BOOKED)
+                .build();
+        room = RoomDTO.builder().id(booking.getRoomId()).ownerId(UUID.randomUUID().toString()).build();
+        event = BookingMapper.bookingToPublishBookingDto(booking, room, UserDTO.builder().id(booking.getUserId()).build());
+    }
+
+    @AfterEach
+    void tearDown() throws InterruptedException {
+        pipeline.shutdown();
+    }
+
+    @Test
+    void publishesEnrichedEvent() {
+        given(userClient.findById(booking.getUserId().toString())).willReturn(UserDTO.builder().id(booking.getUserId()).build());
+        given(userClient.findById(room.getOwnerId())).willReturn(UserDTO.builder().id(UUID.fromString(room.getOwnerId())).build());
+        given(messagingProducer.sendMessage(anyString(), anyString(), any())).willReturn(CompletableFuture.completedFuture(null));
+
+        CompletableFuture<Void> published = pipeline.submit(event);
+
+        verify(messagingProducer, timeout(1000)).sendMessage(eq("topic1"), eq(room.getId().toString()), argThat((PublishBookingEventDTO sent) ->
+                sent.getUser().getId().equals(booking.getUserId()) && sent.getRoom().getOwner() != null));
+        assertThat(published).succeedsWithin(Duration.ofSeconds(1));
+    }
+
+    @Test
+    void retriesFailedEnrichment() {
+        given(userClient.findById(anyString()))
+                .willThrow(new RuntimeException("users-ms down"))
+                .willReturn(new UserDTO());
+        given(messagingProducer.sendMessage(anyString(), anyString(), any())).willReturn(CompletableFuture.completedFuture(null));
+
+        pipeline.submit(event);
+
+        verify(messagingProducer, timeout(1000)).sendMessage(eq("topic1"), eq(room.getId().toString()), any());
+        assertThat(meterRegistry.counter("bookings.events.retries").count()).isEqualTo(1);
+    }
+
+    @Test
+    void retriesFailedSend() {
+        given(userClient.findById(anyString())).willReturn(new UserDTO());
+        given(messagingProducer.sendMessage(anyString(), anyString(), any()))
+                .willReturn(CompletableFuture.failedFuture(new RuntimeException("broker down")))
+                .willReturn(CompletableFuture.completedFuture(null));
+
+        CompletableFuture<Void> published = pipeline.submit(event);
+
+        assertThat(published).succeedsWithin(Duration.ofSeconds(1));
+        verify(messagingProducer, times(2)).sendMessage(eq("topic1"), eq(room.getId().toString()), any());
+        verify(userClient, times(2)).findById(booking.getUserId().toString());
+        assertThat(event.getUser().getId()).isEqualTo(booking.getUserId());
+        assertThat(event.getRoom().getOwner()).isNull();
+    }
+
+    @Test
+    void doesNotRetryClientErrors() {
+        given(userClient.findById(anyString())).willThrow(new InheritedException(404, "Not found user"));
+
+        CompletableFuture<Void> published = pipeline.submit(event);
+
+        assertThat(published).failsWithin(Duration.ofSeconds(1));
+        verify(userClient).findById(anyString());
+        verify(messagingProducer, never()).sendMessage(anyString(), anyString(), any());
+        assertThat(meterRegistry.counter("bookings.events.failures").count()).isEqualTo(1);
+        assertThat(meterRegistry.get("bookings.events.backlog").gauge().value()).isZero();
+    }
+}
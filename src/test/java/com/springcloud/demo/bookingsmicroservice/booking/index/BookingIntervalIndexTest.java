@@ -0,0 +1,143 @@
+package com.springcloud.demo.bookingsmicroservice.booking.index;
+
+import com.springcloud.demo.bookingsmicroservice.booking.model.Booking;
+import com.springcloud.demo.bookingsmicroservice.booking.model.BookingStatus;
+import com.springcloud.demo.bookingsmicroservice.booking.repository.BookingRepository;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Nested;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.InjectMocks;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+
+import java.time.OffsetDateTime;
+import java.util.List;
+import java.util.UUID;
+
+import static org.assertj.core.api.Assertions.*;
+import static org.mockito.BDDMockito.*;
+
+@ExtendWith(MockitoExtension.class)
+class BookingIntervalIndexTest {
+
+    @Mock
+    private BookingRepository bookingRepository;
+
+    @InjectMocks
+    private BookingIntervalIndex bookingIndex;
+
+    OffsetDateTime base;
+    Booking booking;
+
+    @BeforeEach
+    void setup() {
+        base = OffsetDateTime.now().plusDays(1);
+        booking = Booking.builder()
+                .id(UUID.randomUUID())
+                .roomId(UUID.randomUUID())
+                .userId(UUID.randomUUID())
+                .checkIn(base)
+                .checkOut(base.plusDays(3))
+                .status(BookingStatus.BOOKED)
+                .build();
+    }
+
+    @Nested
+    class Conflicts {
+
+        @BeforeEach
+        void setup() {
+            bookingIndex.track(booking);
+        }
+
+        @Test
+        void detectsPartialOverlap() {
+            assertThat(bookingIndex.hasRoomConflict(booking.getRoomId(), base.plusDays(2), base.plusDays(5))).isTrue();
+            assertThat(bookingIndex.hasRoomConflict(booking.getRoomId(), base.minusDays(2), base.plusDays(1))).isTrue();
+        }
+
+        @Test
+        void detectsEnclosingAndEnclosedRanges() {
+            assertThat(bookingIndex.hasRoomConflict(booking.getRoomId(), base.minusDays(1), base.plusDays(4))).isTrue();
+            assertThat(bookingIndex.hasRoomConflict(booking.getRoomId(), base.plusHours(2), base.plusHours(5))).isTrue();
+        }
+
+        @Test
+        void allowsBackToBackRanges() {
+            assertThat(bookingIndex.hasRoomConflict(booking.getRoomId(), base.plusDays(3), base.plusDays(5))).isFalse();
+            assertThat(bookingIndex.hasRoomConflict(booking.getRoomId(), base.minusDays(2), base)).isFalse();
+        }
+
+        @Test
+        void detectsUserConflict() {
+            assertThat(bookingIndex.hasUserConflict(booking.getUserId(), base.plusDays(1), base.plusDays(2))).isTrue();
+            assertThat(bookingIndex.hasUserConflict(UUID.randomUUID(), base.plusDays(1), base.plusDays(2))).isFalse();
+        }
+
+        @Test
+        void detectsLongBookingHiddenBehindShorterOne() {
+            Booking longBooking = Booking.builder()
+                    .id(UUID.randomUUID())
+                    .roomId(booking.getRoomId())
+                    .userId(UUID.randomUUID())
+                    .checkIn(base.minusDays(10))
+                    .checkOut(base.plusDays(20))
+                    .status(BookingStatus.BOOKED)
+                    .build();
+            bookingIndex.track(longBooking);
+
+            assertThat(bookingIndex.hasRoomConflict(booking.getRoomId(), base.plusDays(10), base.plusDays(12))).isTrue();
+        }
+
+        @Test
+        void releasesRangeWhenBookingIsCancelled() {
+            booking.setStatus(BookingStatus.CANCELLED);
+
+            bookingIndex.track(booking);
+
+            assertThat(bookingIndex.hasRoomConflict(booking.getRoomId(), base, base.plusDays(3))).isFalse();
+            assertThat(bookingIndex.hasUserConflict(booking.getUserId(), base, base.plusDays(3))).isFalse();
+        }
+    }
+
+    @Test
+    void rebuildLoadsActiveBookings() {
+        given(bookingRepository.findByStatusAndCheckOutAfter(eq(BookingStatus.BOOKED), any(OffsetDateTime.class))).willReturn(List.of(booking));
+
+        bookingIndex.rebuild();
+
+        verify(bookingRepository).findByStatusAndCheckOutAfter(eq(BookingStatus.BOOKED), any(OffsetDateTime.class));
+        assertThat(bookingIndex.hasRoomConflict(booking.getRoomId(), base, base.plusDays(1))).isTrue();
+    }
+
+    @Test
+    void rebuildKeepsBookingsTrackedWhileLoading() {
+        Booking cancelled = Booking.builder()
+                .id(booking.getId())
+                .roomId(booking.getRoomId())
+                .userId(booking.getUserId())
+                .checkIn(booking.getCheckIn())
+                .checkOut(booking.getCheckOut())
+                .status(BookingStatus.CANCELLED)
+                .build();
+        Booking created = Booking.builder()
+                .id(UUID.randomUUID())
+                .roomId(UUID.randomUUID())
+                .userId(UUID.randomUUID())
+                .checkIn(base)
+                .checkOut(base.plusDays(1))
+                .status(BookingStatus.BOOKED)
+                .build();
+        given(bookingRepository.findByStatusAndCheckOutAfter(eq(BookingStatus.BOOKED), any(OffsetDateTime.class))).willAnswer(invocation -> {
+            bookingIndex.track(cancelled);
+            bookingIndex.track(created);
+            return List.of(booking);
+        });
+
+        bookingIndex.rebuild();
+
+        assertThat(bookingIndex.hasRoomConflict(booking.getRoomId(), base, base.plusDays(1))).isFalse();
+        assertThat(bookingIndex.hasRoomConflict(created.getRoomId(), base, base.plusDays(1))).isTrue();
+    }
+}
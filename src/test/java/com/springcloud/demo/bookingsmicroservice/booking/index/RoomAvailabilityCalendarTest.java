@@ -0,0 +1,108 @@
+package com.springcloud.demo.bookingsmicroservice.booking.index;
+
+import com.springcloud.demo.bookingsmicroservice.booking.model.Booking;
+import com.springcloud.demo.bookingsmicroservice.booking.model.BookingStatus;
+import com.springcloud.demo.bookingsmicroservice.booking.repository.BookingRepository;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+
+import java.time.Duration;
+import java.time.LocalDate;
+import java.time.LocalTime;
+import java.time.OffsetDateTime;
+import java.time.ZoneOffset;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.UUID;
+
+import static org.assertj.core.api.Assertions.*;
+import static org.mockito.BDDMockito.*;
+
+@ExtendWith(MockitoExtension.class)
+class RoomAvailabilityCalendarTest {
+
+    @Mock
+    private BookingRepository bookingRepository;
+
+    RoomAvailabilityCalendar calendar;
+    List<Booking> stored;
+    UUID roomId;
+    LocalDate day;
+
+    @BeforeEach
+    void setup() {
+        calendar = new RoomAvailabilityCalendar(bookingRepository, Duration.ofMinutes(1), 100);
+        stored = new ArrayList<>();
+        roomId = UUID.randomUUID();
+        day = LocalDate.now(ZoneOffset.UTC).plusDays(10);
+        given(bookingRepository.findByRoomIdAndStatusAndCheckOutAfter(eq(roomId), eq(BookingStatus.BOOKED), any(OffsetDateTime.class)))
+                .willAnswer(invocation -> stored.stream().filter(booking -> booking.getStatus() == BookingStatus.BOOKED).toList());
+    }
+
+    @Test
+    void occupiesNightsFromCheckInToCheckOut() {
+        store(day, day.plusDays(3));
+
+        List<LocalDate> available = calendar.findAvailableDays(roomId, day.minusDays(1), day.plusDays(4));
+
+        assertThat(available).containsExactly(day.minusDays(1), day.plusDays(3), day.plusDays(4));
+    }
+
+    @Test
+    void keepsCalendarUpdatedOnCreate() {
+        assertThat(calendar.findAvailableDays(roomId, day, day.plusDays(1))).hasSize(2);
+
+        calendar.track(store(day.plusDays(1), day.plusDays(2)));
+
+        assertThat(calendar.findAvailableDays(roomId, day, day.plusDays(1))).containsExactly(day);
+        verify(bookingRepository, times(1)).findByRoomIdAndStatusAndCheckOutAfter(any(), any(), any());
+    }
+
+    @Test
+    void reloadsRoomWhenBookingIsCancelled() {
+        Booking first = store(day, day.plusDays(2));
+        store(day.plusDays(2), day.plusDays(4));
+        calendar.findAvailableDays(roomId, day, day);
+
+        first.setStatus(BookingStatus.CANCELLED);
+        calendar.track(first);
+
+        assertThat(calendar.findAvailableDays(roomId, day, day.plusDays(4))).containsExactly(day, day.plusDays(1), day.plusDays(4));
+        verify(bookingRepository, times(2)).findByRoomIdAndStatusAndCheckOutAfter(any(), any(), any());
+    }
+
+    @Test
+    void seesChangesFromOtherInstancesOnceExpired() {
+        calendar = new RoomAvailabilityCalendar(bookingRepository, Duration.ZERO, 100);
+        assertThat(calendar.findAvailableDays(roomId, day, day)).containsExactly(day);
+
+        store(day, day.plusDays(1));
+
+        assertThat(calendar.findAvailableDays(roomId, day, day)).isEmpty();
+    }
+
+    @Test
+    void spansBitmapContainers() {
+        LocalDate from = LocalDate.ofEpochDay(4096 * 20 - 3);
+        store(from, from.plusDays(6));
+
+        assertThat(calendar.findAvailableDays(roomId, from.minusDays(1), from.plusDays(6)))
+                .containsExactly(from.minusDays(1), from.plusDays(6));
+    }
+
+    private Booking store(LocalDate checkIn, LocalDate checkOut) {
+        Booking booking = Booking.builder()
+                .id(UUID.randomUUID())
+                .roomId(roomId)
+                .userId(UUID.randomUUID())
+                .checkIn(OffsetDateTime.of(checkIn, LocalTime.of(15, 0), ZoneOffset.UTC))
+                .checkOut(OffsetDateTime.of(checkOut, LocalTime.of(11, 0), ZoneOffset.UTC))
+                .status(BookingStatus.BOOKED)
+                .build();
+        stored.add(booking);
+        return booking;
+    }
+}
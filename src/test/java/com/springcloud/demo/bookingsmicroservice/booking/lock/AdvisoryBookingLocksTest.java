@@ -0,0 +1,73 @@
+package com.springcloud.demo.bookingsmicroservice.booking.lock;
+
+import com.springcloud.demo.bookingsmicroservice.exceptions.ConflictException;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.Assertions;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.InOrder;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+import org.springframework.dao.CannotAcquireLockException;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.time.Duration;
+import java.util.UUID;
+
+import static org.assertj.core.api.Assertions.*;
+import static org.mockito.BDDMockito.*;
+
+@ExtendWith(MockitoExtension.class)
+class AdvisoryBookingLocksTest {
+
+    @Mock
+    private JdbcTemplate jdbcTemplate;
+
+    @Mock
+    private PlatformTransactionManager transactionManager;
+
+    SimpleMeterRegistry meterRegistry;
+    AdvisoryBookingLocks bookingLocks;
+    UUID roomId;
+    UUID userId;
+
+    @BeforeEach
+    void setup() {
+        meterRegistry = new SimpleMeterRegistry();
+        bookingLocks = new AdvisoryBookingLocks(jdbcTemplate, new TransactionTemplate(transactionManager), meterRegistry, Duration.ofSeconds(2));
+        roomId = UUID.randomUUID();
+        userId = UUID.randomUUID();
+    }
+
+    @Test
+    void locksRoomThenUserInsideTransaction() {
+        String result = bookingLocks.withLocks(roomId, userId, () -> "done");
+
+        InOrder inOrder = inOrder(transactionManager, jdbcTemplate);
+        inOrder.verify(transactionManager).getTransaction(any());
+        inOrder.verify(jdbcTemplate).queryForObject(anyString(), eq(String.class), eq("2000ms"));
+        inOrder.verify(jdbcTemplate).queryForList(anyString(), eq(1), eq(roomId.hashCode()));
+        inOrder.verify(jdbcTemplate).queryForList(anyString(), eq(2), eq(userId.hashCode()));
+        inOrder.verify(transactionManager).commit(any());
+        assertThat(result).isEqualTo("done");
+        assertThat(meterRegistry.get("bookings.create.lock.wait").tag("mode", "advisory").timer().count()).isEqualTo(1);
+    }
+
+    @Test
+    void errorWhenLockTimeoutExpires() {
+        given(jdbcTemplate.queryForList(anyString(), eq(1), eq(roomId.hashCode())))
+                .willThrow(new CannotAcquireLockException("canceling statement due to lock timeout"));
+
+        ConflictException e = Assertions.assertThrows(ConflictException.class, () -> {
+            bookingLocks.withLocks(roomId, userId, () -> "done");
+        });
+
+        verify(transactionManager).rollback(any());
+        verify(jdbcTemplate, never()).queryForList(anyString(), eq(2), anyInt());
+        assertThat(e.getMessage()).contains("Try later");
+        assertThat(meterRegistry.get("bookings.create.lock.timeouts").counter().count()).isEqualTo(1);
+    }
+}
@@ -0,0 +1,57 @@
+package com.springcloud.demo.bookingsmicroservice.booking.lock;
+
+import com.springcloud.demo.bookingsmicroservice.booking.model.Booking;
+import com.springcloud.demo.bookingsmicroservice.exceptions.ConflictException;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.Assertions;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.orm.ObjectOptimisticLockingFailureException;
+
+import java.util.UUID;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.assertj.core.api.Assertions.*;
+
+class OptimisticLockRetryTest {
+
+    SimpleMeterRegistry meterRegistry;
+    OptimisticLockRetry optimisticLockRetry;
+
+    @BeforeEach
+    void setup() {
+        meterRegistry = new SimpleMeterRegistry();
+        optimisticLockRetry = new OptimisticLockRetry(meterRegistry, 3);
+    }
+
+    @Test
+    void retriesUntilActionSucceeds() {
+        AtomicInteger attempts = new AtomicInteger();
+
+        String result = optimisticLockRetry.execute("review", () -> {
+            if (attempts.incrementAndGet() < 3) {
+                throw new ObjectOptimisticLockingFailureException(Booking.class, UUID.randomUUID());
+            }
+            return "saved";
+        });
+
+        assertThat(result).isEqualTo("saved");
+        assertThat(meterRegistry.get("bookings.optimistic_lock.retries").tag("operation", "review").counter().count()).isEqualTo(2);
+    }
+
+    @Test
+    void errorWhenAttemptsAreExhausted() {
+        AtomicInteger attempts = new AtomicInteger();
+
+        ConflictException e = Assertions.assertThrows(ConflictException.class, () -> {
+            optimisticLockRetry.execute("review", () -> {
+                attempts.incrementAndGet();
+                throw new ObjectOptimisticLockingFailureException(Booking.class, UUID.randomUUID());
+            });
+        });
+
+        assertThat(attempts.get()).isEqualTo(3);
+        assertThat(e.getMessage()).contains("modified concurrently");
+        assertThat(meterRegistry.get("bookings.optimistic_lock.failures").tag("operation", "review").counter().count()).isEqualTo(1);
+    }
+}
@@ -0,0 +1,76 @@
+package com.springcloud.demo.bookingsmicroservice.booking.lock;
+
+import com.springcloud.demo.bookingsmicroservice.exceptions.ConflictException;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.Assertions;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import java.time.Duration;
+import java.util.UUID;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+
+import static org.assertj.core.api.Assertions.*;
+
+class StripedBookingLocksTest {
+
+    SimpleMeterRegistry meterRegistry;
+    StripedBookingLocks bookingLocks;
+
+    @BeforeEach
+    void setup() {
+        meterRegistry = new SimpleMeterRegistry();
+        bookingLocks = new StripedBookingLocks(meterRegistry, 64, Duration.ofMillis(200));
+    }
+
+    @Test
+    void runsActionAndRecordsWaitTime() {
+        String result = bookingLocks.withLocks(UUID.randomUUID(), UUID.randomUUID(), () -> "done");
+
+        assertThat(result).isEqualTo("done");
+        assertThat(meterRegistry.get("bookings.create.lock.wait").timer().count()).isEqualTo(1);
+    }
+
+    @Test
+    void allowsSameRoomAndUserStripe() {
+        UUID id = UUID.randomUUID();
+
+        assertThat(bookingLocks.withLocks(id, id, () -> true)).isTrue();
+    }
+
+    @Test
+    void errorWhenRoomIsLockedLongerThanTimeout() throws Exception {
+        UUID roomId = UUID.randomUUID();
+        CountDownLatch locked = new CountDownLatch(1);
+        CountDownLatch release = new CountDownLatch(1);
+        ExecutorService executor = Executors.newSingleThreadExecutor();
+
+        try {
+            Future<?> holder = executor.submit(() -> bookingLocks.withLocks(roomId, UUID.randomUUID(), () -> {
+                locked.countDown();
+                try {
+                    release.await(5, TimeUnit.SECONDS);
+                } catch (InterruptedException e) {
+                    Thread.currentThread().interrupt();
+                }
+                return null;
+            }));
+            locked.await(5, TimeUnit.SECONDS);
+
+            ConflictException e = Assertions.assertThrows(ConflictException.class, () -> {
+                bookingLocks.withLocks(roomId, UUID.randomUUID(), () -> null);
+            });
+
+            release.countDown();
+            holder.get(5, TimeUnit.SECONDS);
+            assertThat(e.getMessage()).contains("Try later");
+            assertThat(meterRegistry.get("bookings.create.lock.timeouts").counter().count()).isEqualTo(1);
+        } finally {
+            executor.shutdownNow();
+        }
+    }
+}
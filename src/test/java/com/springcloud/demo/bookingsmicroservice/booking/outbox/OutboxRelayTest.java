@@ -0,0 +1,174 @@
+package com.springcloud.demo.bookingsmicroservice.booking.outbox;
+
+import com.springcloud.demo.bookingsmicroservice.booking.dto.PublishBookingEventDTO;
+import com.springcloud.demo.bookingsmicroservice.booking.dto.ResponseBookingDTO;
+import com.springcloud.demo.bookingsmicroservice.booking.event.BookingEventPipeline;
+import com.springcloud.demo.bookingsmicroservice.messaging.MessagingProducer;
+import com.springcloud.demo.bookingsmicroservice.utils.JsonUtils;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.ArgumentCaptor;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.time.Duration;
+import java.time.OffsetDateTime;
+import java.util.List;
+import java.util.UUID;
+import java.util.concurrent.CompletableFuture;
+
+import static org.assertj.core.api.Assertions.*;
+import static org.mockito.BDDMockito.*;
+
+@ExtendWith(MockitoExtension.class)
+class OutboxRelayTest {
+
+    @Mock
+    private OutboxEventRepository outboxEventRepository;
+
+    @Mock
+    private BookingEventPipeline bookingEventPipeline;
+
+    @Mock
+    private MessagingProducer messagingProducer;
+
+    SimpleMeterRegistry meterRegistry;
+    OutboxRelay relay;
+
+    @BeforeEach
+    void setup() {
+        meterRegistry = new SimpleMeterRegistry();
+        relay = new OutboxRelay(outboxEventRepository, bookingEventPipeline, messagingProducer,
+                new TransactionTemplate(mock(PlatformTransactionManager.class)), meterRegistry, "topic2", 10,
+                Duration.ofMinutes(5), 3, Duration.ofSeconds(5), Duration.ofHours(24));
+    }
+
+    @Test
+    void publishesAndMarksSent() {
+        OutboxEvent bookingCreated = event(1L, OutboxEventType.BOOKING_CREATED, JsonUtils.toJson(new PublishBookingEventDTO()));
+        OutboxEvent reviewCreated = event(2L, OutboxEventType.REVIEW_CREATED, JsonUtils.toJson(ResponseBookingDTO.builder().id(UUID.randomUUID()).build()));
+        given(outboxEventRepository.claim(10, 300)).willReturn(List.of(bookingCreated, reviewCreated));
+        given(bookingEventPipeline.submit(any(PublishBookingEventDTO.class))).willReturn(CompletableFuture.completedFuture(null));
+        given(messagingProducer.sendMessage(anyString(), anyString(), any())).willReturn(CompletableFuture.completedFuture(null));
+
+        relay.relay();
+
+        verify(messagingProducer).sendMessage(eq("topic2"), eq(reviewCreated.getAggregateId().toString()), any(ResponseBookingDTO.class));
+        verify(outboxEventRepository).markSent(eq(List.of(1L, 2L)), any(OffsetDateTime.class));
+        assertThat(meterRegistry.get("bookings.outbox.relay.lag").timer().count()).isEqualTo(2);
+    }
+
+    @Test
+    void leavesFailedEventsUnsent() {
+        OutboxEvent bookingCreated = event(1L, OutboxEventType.BOOKING_CREATED, JsonUtils.toJson(new PublishBookingEventDTO()));
+        OutboxEvent reviewCreated = event(2L, OutboxEventType.REVIEW_CREATED, JsonUtils.toJson(ResponseBookingDTO.builder().id(UUID.randomUUID()).build()));
+        given(outboxEventRepository.claim(10, 300)).willReturn(List.of(bookingCreated, reviewCreated));
+        given(bookingEventPipeline.submit(any(PublishBookingEventDTO.class))).willReturn(CompletableFuture.failedFuture(new RuntimeException("users-ms down")));
+        given(messagingProducer.sendMessage(anyString(), anyString(), any())).willReturn(CompletableFuture.completedFuture(null));
+        given(outboxEventRepository.countBySentAtIsNullAndFailedAtIsNull()).willReturn(1L);
+
+        relay.relay();
+
+        verify(outboxEventRepository).markSent(eq(List.of(2L)), any(OffsetDateTime.class));
+        verify(outboxEventRepository).markRetry(eq(1L), contains("users-ms down"), any(OffsetDateTime.class));
+        verify(outboxEventRepository, never()).markFailed(anyLong(), anyString(), any());
+        assertThat(meterRegistry.get("bookings.outbox.backlog").gauge().value()).isEqualTo(1);
+    }
+
+    @Test
+    void holdsBackLaterEventsOfFailedKey() {
+        String roomId = UUID.randomUUID().toString();
+        OutboxEvent first = event(1L, OutboxEventType.BOOKING_CREATED, JsonUtils.toJson(new PublishBookingEventDTO()));
+        OutboxEvent second = event(2L, OutboxEventType.BOOKING_CREATED, JsonUtils.toJson(new PublishBookingEventDTO()));
+        OutboxEvent otherRoom = event(3L, OutboxEventType.REVIEW_CREATED, JsonUtils.toJson(ResponseBookingDTO.builder().id(UUID.randomUUID()).build()));
+        first.setMessageKey(roomId);
+        second.setMessageKey(roomId);
+        otherRoom.setMessageKey(otherRoom.getAggregateId().toString());
+        given(outboxEventRepository.claim(10, 300)).willReturn(List.of(first, second, otherRoom));
+        given(bookingEventPipeline.submit(any(PublishBookingEventDTO.class))).willReturn(CompletableFuture.failedFuture(new RuntimeException("users-ms down")));
+        given(messagingProducer.sendMessage(anyString(), anyString(), any())).willReturn(CompletableFuture.completedFuture(null));
+
+        relay.relay();
+
+        verify(bookingEventPipeline, times(1)).submit(any(PublishBookingEventDTO.class));
+        verify(outboxEventRepository).markSent(eq(List.of(3L)), any(OffsetDateTime.class));
+        verify(outboxEventRepository).markRetry(eq(1L), contains("users-ms down"), any(OffsetDateTime.class));
+        verify(outboxEventRepository).release(List.of(2L));
+    }
+
+    @Test
+    void publishesEventsOfSameKeyOneAfterTheOther() {
+        String roomId = UUID.randomUUID().toString();
+        OutboxEvent first = event(1L, OutboxEventType.BOOKING_CREATED, JsonUtils.toJson(new PublishBookingEventDTO()));
+        OutboxEvent second = event(2L, OutboxEventType.BOOKING_CREATED, JsonUtils.toJson(new PublishBookingEventDTO()));
+        first.setMessageKey(roomId);
+        second.setMessageKey(roomId);
+        CompletableFuture<Void> firstPublished = new CompletableFuture<>();
+        given(outboxEventRepository.claim(10, 300)).willReturn(List.of(first, second));
+        given(bookingEventPipeline.submit(any(PublishBookingEventDTO.class)))
+                .willReturn(firstPublished)
+                .willReturn(CompletableFuture.completedFuture(null));
+
+        CompletableFuture<Integer> relayed = CompletableFuture.supplyAsync(relay::relayBatch);
+
+        verify(bookingEventPipeline, timeout(1000)).submit(any(PublishBookingEventDTO.class));
+        verify(bookingEventPipeline, after(100).times(1)).submit(any(PublishBookingEventDTO.class));
+        firstPublished.complete(null);
+        assertThat(relayed).succeedsWithin(Duration.ofSeconds(1)).isEqualTo(2);
+        verify(bookingEventPipeline, times(2)).submit(any(PublishBookingEventDTO.class));
+    }
+
+    @Test
+    void backsOffFailedEventsExponentially() {
+        OutboxEvent bookingCreated = event(1L, OutboxEventType.BOOKING_CREATED, JsonUtils.toJson(new PublishBookingEventDTO()));
+        bookingCreated.setAttempts(2);
+        given(outboxEventRepository.claim(10, 300)).willReturn(List.of(bookingCreated));
+        given(bookingEventPipeline.submit(any(PublishBookingEventDTO.class))).willReturn(CompletableFuture.failedFuture(new RuntimeException("users-ms down")));
+
+        relay.relay();
+
+        ArgumentCaptor<OffsetDateTime> availableAt = ArgumentCaptor.forClass(OffsetDateTime.class);
+        verify(outboxEventRepository).markRetry(eq(1L), anyString(), availableAt.capture());
+        assertThat(availableAt.getValue()).isAfter(OffsetDateTime.now().plusSeconds(9));
+    }
+
+    @Test
+    void deadLettersEventsAfterMaxAttempts() {
+        OutboxEvent reviewCreated = event(1L, OutboxEventType.REVIEW_CREATED, "not a review");
+        reviewCreated.setAttempts(3);
+        given(outboxEventRepository.claim(10, 300)).willReturn(List.of(reviewCreated));
+
+        relay.relay();
+
+        verify(outboxEventRepository).markFailed(eq(1L), anyString(), any(OffsetDateTime.class));
+        verify(outboxEventRepository, never()).markRetry(anyLong(), anyString(), any());
+        verify(outboxEventRepository, never()).markSent(anyCollection(), any());
+        assertThat(meterRegistry.get("bookings.outbox.dead-lettered").counter().count()).isEqualTo(1);
+    }
+
+    @Test
+    void stopsWhenNothingIsClaimable() {
+        given(outboxEventRepository.claim(10, 300)).willReturn(List.of());
+
+        relay.relay();
+
+        verify(bookingEventPipeline, never()).submit(any());
+        verify(outboxEventRepository, never()).markSent(anyCollection(), any());
+    }
+
+    private static OutboxEvent event(Long id, OutboxEventType eventType, String payload) {
+        return OutboxEvent.builder()
+                .id(id)
+                .eventType(eventType)
+                .aggregateId(UUID.randomUUID())
+                .payload(payload)
+                .createdAt(OffsetDateTime.now().minusSeconds(1))
+                // claim counts the attempt before returning the row
+                .attempts(1)
+                .build();
+    }
+}
@@ -1,22 +1,27 @@
 package com.springcloud.demo.bookingsmicroservice.booking.service;
 
 import com.springcloud.demo.bookingsmicroservice.booking.dto.*;
+import com.springcloud.demo.bookingsmicroservice.booking.index.BookingIntervalIndex;
+import com.springcloud.demo.bookingsmicroservice.booking.index.RoomAvailabilityCalendar;
+import com.springcloud.demo.bookingsmicroservice.booking.lock.OptimisticLockRetry;
+import com.springcloud.demo.bookingsmicroservice.booking.lock.StripedBookingLocks;
 import com.springcloud.demo.bookingsmicroservice.booking.mapper.BookingMapper;
 import com.springcloud.demo.bookingsmicroservice.booking.model.Booking;
 import com.springcloud.demo.bookingsmicroservice.booking.model.BookingStatus;
+import com.springcloud.demo.bookingsmicroservice.booking.outbox.Outbox;
+import com.springcloud.demo.bookingsmicroservice.booking.outbox.OutboxEventType;
 import com.springcloud.demo.bookingsmicroservice.booking.repository.BookingRepository;
 import com.springcloud.demo.bookingsmicroservice.booking.repository.BookingSpecification;
 
 import static org.assertj.core.api.Assertions.*;
 
 import com.springcloud.demo.bookingsmicroservice.client.rooms.RoomClientImpl;
+import com.springcloud.demo.bookingsmicroservice.client.rooms.StaleRoomPolicy;
 import com.springcloud.demo.bookingsmicroservice.client.rooms.dto.RoomDTO;
-import com.springcloud.demo.bookingsmicroservice.client.users.UserClientImpl;
-import com.springcloud.demo.bookingsmicroservice.client.users.UserDTO;
 import com.springcloud.demo.bookingsmicroservice.exceptions.BadRequestException;
+import com.springcloud.demo.bookingsmicroservice.exceptions.ConflictException;
 import com.springcloud.demo.bookingsmicroservice.exceptions.ForbiddenException;
 import com.springcloud.demo.bookingsmicroservice.exceptions.NotFoundException;
-import com.springcloud.demo.bookingsmicroservice.messaging.MessagingProducer;
 import org.junit.jupiter.api.Assertions;
 import org.junit.jupiter.api.BeforeEach;
 import org.junit.jupiter.api.Nested;
@@ -25,20 +30,29 @@ import org.junit.jupiter.api.extension.ExtendWith;
 
 import static org.mockito.BDDMockito.*;
 
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
 import org.mockito.InjectMocks;
 import org.mockito.Mock;
+import org.mockito.Spy;
 import org.mockito.junit.jupiter.MockitoExtension;
+import org.springframework.dao.DataIntegrityViolationException;
 import org.springframework.data.domain.PageImpl;
 import org.springframework.data.domain.PageRequest;
 import org.springframework.data.domain.Pageable;
 import org.springframework.data.jpa.domain.Specification;
+import org.springframework.orm.ObjectOptimisticLockingFailureException;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
 import org.springframework.http.HttpStatus;
 import org.springframework.http.MediaType;
-import org.springframework.test.util.ReflectionTestUtils;
 import org.springframework.test.web.servlet.request.MockMvcRequestBuilders;
 import org.springframework.test.web.servlet.result.MockMvcResultMatchers;
 
+import java.sql.SQLException;
+import java.time.Duration;
+import java.time.LocalDate;
 import java.time.OffsetDateTime;
+import java.time.ZoneOffset;
 import java.util.*;
 
 @ExtendWith(MockitoExtension.class)
@@ -50,24 +64,36 @@ class BookingServiceTest {
     @Mock
     private BookingSpecification bookingSpecification;
 
+    @Mock
+    private BookingIntervalIndex bookingIndex;
+
+    @Mock
+    private RoomAvailabilityCalendar roomAvailabilityCalendar;
+
+    @Spy
+    private StripedBookingLocks bookingLocks = new StripedBookingLocks(new SimpleMeterRegistry(), 16, Duration.ofSeconds(1));
+
+    @Spy
+    private OptimisticLockRetry optimisticLockRetry = new OptimisticLockRetry(new SimpleMeterRegistry(), 3);
+
     @Mock
     private RoomClientImpl roomClient;
 
     @Mock
-    private UserClientImpl userClient;
+    private StaleRoomPolicy staleRoomPolicy;
+
+    @Mock
+    private RoomOwnershipService roomOwnershipService;
 
     @Mock
-    private MessagingProducer messagingProducer;
+    private Outbox outbox;
+
+    @Spy
+    private TransactionTemplate transactionTemplate = new TransactionTemplate(mock(PlatformTransactionManager.class));
 
     @InjectMocks
     private BookingService bookingService;
 
-    @BeforeEach
-    void setup() {
-        ReflectionTestUtils.setField(bookingService, "bookingCreatedTopic", "topic1");
-        ReflectionTestUtils.setField(bookingService, "reviewCreatedTopic", "topic2");
-    }
-
     @Nested
     class Create {
 
@@ -96,15 +122,14 @@ class BookingServiceTest {
                     .status(BookingStatus.BOOKED)
                     .build();
 
-            given(bookingRepository.findBookingsByRange(any(OffsetDateTime.class), any(OffsetDateTime.class), any(UUID.class), any(UUID.class))).willReturn(Optional.empty());
-            given(bookingRepository.save(any(Booking.class))).willReturn(bookingSaved);
+            given(bookingRepository.saveAndFlush(any(Booking.class))).willReturn(bookingSaved);
             given(roomClient.findById(anyString())).willReturn(new RoomDTO());
-            given(userClient.findById(any())).willReturn(new UserDTO());
-            willDoNothing().given(messagingProducer).sendMessage(anyString(), anyString());
 
             ResponseBookingDTO response = bookingService.create(createBookingDTO, UUID.randomUUID().toString());
 
-            verify(bookingRepository).findBookingsByRange(eq(OffsetDateTime.parse(createBookingDTO.getCheckIn())), eq(OffsetDateTime.parse(createBookingDTO.getCheckOut())), any(UUID.class), eq(UUID.fromString(createBookingDTO.getRoomId())));
+            verify(outbox).add(eq(OutboxEventType.BOOKING_CREATED), eq(bookingSaved.getId()), eq(createBookingDTO.getRoomId()), any(PublishBookingEventDTO.class));
+            verify(bookingRepository).existsUserBookingInRange(any(UUID.class), eq(OffsetDateTime.parse(createBookingDTO.getCheckIn())), eq(OffsetDateTime.parse(createBookingDTO.getCheckOut())));
+            verify(bookingRepository).existsRoomBookingInRange(eq(UUID.fromString(createBookingDTO.getRoomId())), eq(OffsetDateTime.parse(createBookingDTO.getCheckIn())), eq(OffsetDateTime.parse(createBookingDTO.getCheckOut())));
 //            verify(bookingRepository).save(argThat(dto ->
 //                    Objects.equals(dto.getCheckIn(), createBookingDTO.getCheckIn()) &&
 //                            Objects.equals(dto.getCheckOut(), createBookingDTO.getCheckOut()) &&
@@ -121,14 +146,97 @@ class BookingServiceTest {
                     .userId(UUID.randomUUID())
                     .build();
 
-            given(bookingRepository.findBookingsByRange(any(OffsetDateTime.class), any(OffsetDateTime.class), any(UUID.class), any(UUID.class))).willReturn(Optional.of(bookingAtSameTime));
+            given(roomClient.findById(anyString())).willReturn(new RoomDTO());
+            given(bookingRepository.existsUserBookingInRange(any(UUID.class), any(OffsetDateTime.class), any(OffsetDateTime.class))).willReturn(true);
 
             ForbiddenException e = Assertions.assertThrows(ForbiddenException.class, () -> {
                 bookingService.create(createBookingDTO, bookingAtSameTime.getUserId().toString());
             });
 
-            verify(bookingRepository).findBookingsByRange(eq(OffsetDateTime.parse(createBookingDTO.getCheckIn())), eq(OffsetDateTime.parse(createBookingDTO.getCheckOut())), any(UUID.class), eq(UUID.fromString(createBookingDTO.getRoomId())));
-            verify(bookingRepository, never()).save(any(Booking.class));
+            verify(bookingRepository).existsUserBookingInRange(eq(bookingAtSameTime.getUserId()), eq(OffsetDateTime.parse(createBookingDTO.getCheckIn())), eq(OffsetDateTime.parse(createBookingDTO.getCheckOut())));
+            verify(bookingRepository, never()).saveAndFlush(any(Booking.class));
+            assertThat(e.getMessage()).isEqualTo("User already has any booking at same time");
+        }
+
+        @Test
+        void errorWhenRoomAlreadyBookedInSameRange() {
+            given(roomClient.findById(anyString())).willReturn(new RoomDTO());
+            given(bookingRepository.existsRoomBookingInRange(any(UUID.class), any(OffsetDateTime.class), any(OffsetDateTime.class))).willReturn(true);
+
+            ForbiddenException e = Assertions.assertThrows(ForbiddenException.class, () -> {
+                bookingService.create(createBookingDTO, UUID.randomUUID().toString());
+            });
+
+            verify(bookingRepository).existsRoomBookingInRange(eq(UUID.fromString(createBookingDTO.getRoomId())), eq(OffsetDateTime.parse(createBookingDTO.getCheckIn())), eq(OffsetDateTime.parse(createBookingDTO.getCheckOut())));
+            verify(bookingRepository, never()).saveAndFlush(any(Booking.class));
+            assertThat(e.getMessage()).isEqualTo("Room already booked at same time");
+        }
+
+        @Test
+        void errorWhenDatabaseRejectsOverlappingRoomBooking() {
+            given(roomClient.findById(anyString())).willReturn(new RoomDTO());
+            given(bookingRepository.saveAndFlush(any(Booking.class))).willThrow(new DataIntegrityViolationException(
+                    "could not execute statement",
+                    new SQLException("conflicting key value violates exclusion constraint \"bookings_room_no_overlap\"", "23P01")
+            ));
+
+            ForbiddenException e = Assertions.assertThrows(ForbiddenException.class, () -> {
+                bookingService.create(createBookingDTO, UUID.randomUUID().toString());
+            });
+
+            assertThat(e.getMessage()).isEqualTo("Room already booked at same time");
+            verify(outbox, never()).add(any(), any(), any(), any());
+        }
+
+        @Test
+        void errorWhenDatabaseRejectsOverlapWithLocalizedMessage() {
+            given(roomClient.findById(anyString())).willReturn(new RoomDTO());
+            given(bookingRepository.saveAndFlush(any(Booking.class))).willThrow(new DataIntegrityViolationException(
+                    "could not execute statement",
+                    new SQLException("el valor de llave en conflicto viola la restricción de exclusión", "23P01")
+            ));
+
+            ForbiddenException e = Assertions.assertThrows(ForbiddenException.class, () -> {
+                bookingService.create(createBookingDTO, UUID.randomUUID().toString());
+            });
+
+            assertThat(e.getMessage()).isEqualTo("Room already booked at same time");
+        }
+
+        @Test
+        void errorWhenDatabaseConfirmsIndexedConflict() {
+            given(bookingIndex.hasRoomConflict(any(UUID.class), any(OffsetDateTime.class), any(OffsetDateTime.class))).willReturn(true);
+            given(bookingRepository.existsRoomBookingInRange(any(UUID.class), any(OffsetDateTime.class), any(OffsetDateTime.class))).willReturn(true);
+
+            ForbiddenException e = Assertions.assertThrows(ForbiddenException.class, () -> {
+                bookingService.create(createBookingDTO, UUID.randomUUID().toString());
+            });
+
+            assertThat(e.getMessage()).isEqualTo("Room already booked at same time");
+            verify(roomClient, never()).findById(anyString());
+            verify(bookingRepository, never()).saveAndFlush(any(Booking.class));
+        }
+
+        @Test
+        void createsBookingWhenIndexedConflictIsStale() {
+            Booking bookingSaved = Booking.builder()
+                    .id(UUID.randomUUID())
+                    .checkIn(OffsetDateTime.parse(createBookingDTO.getCheckIn()))
+                    .checkOut(OffsetDateTime.parse(createBookingDTO.getCheckOut()))
+                    .roomId(UUID.fromString(createBookingDTO.getRoomId()))
+                    .userId(UUID.randomUUID())
+                    .createdAt(OffsetDateTime.now())
+                    .status(BookingStatus.BOOKED)
+                    .build();
+            given(bookingIndex.hasRoomConflict(any(UUID.class), any(OffsetDateTime.class), any(OffsetDateTime.class))).willReturn(true);
+            given(roomClient.findById(anyString())).willReturn(new RoomDTO());
+            given(bookingRepository.saveAndFlush(any(Booking.class))).willReturn(bookingSaved);
+
+            ResponseBookingDTO response = bookingService.create(createBookingDTO, UUID.randomUUID().toString());
+
+            assertThat(response.getId()).isEqualTo(bookingSaved.getId());
+            verify(bookingRepository, times(2)).existsRoomBookingInRange(any(UUID.class), any(OffsetDateTime.class), any(OffsetDateTime.class));
+            verify(bookingIndex).track(bookingSaved);
         }
 
         @Test
@@ -137,11 +245,11 @@ class BookingServiceTest {
             createBookingDTO.setCheckOut(OffsetDateTime.now().plusDays(3).toString());
             createBookingDTO.setRoomId(UUID.randomUUID().toString());
 
-            given(roomClient.findById(anyString())).willReturn(new RoomDTO());
-
             BadRequestException e = Assertions.assertThrows(BadRequestException.class, () -> {
                 bookingService.create(createBookingDTO, UUID.randomUUID().toString());
             });
+
+            verify(roomClient, never()).findById(anyString());
         }
     }
 
@@ -244,6 +352,94 @@ class BookingServiceTest {
         }
     }
 
+    @Nested
+    class SearchAvailability {
+
+        SearchAvailabilityDTO searchAvailabilityDTO;
+        UUID freeRoom;
+        UUID bookedRoom;
+
+        @BeforeEach
+        void setup() {
+            freeRoom = UUID.randomUUID();
+            bookedRoom = UUID.randomUUID();
+            searchAvailabilityDTO = SearchAvailabilityDTO
+                    .builder()
+                    .roomIds(List.of(freeRoom.toString(), bookedRoom.toString()))
+                    .checkIn(OffsetDateTime.now().plusDays(1).toString())
+                    .checkOut(OffsetDateTime.now().plusDays(3).toString())
+                    .build();
+        }
+
+        @Test
+        void searchAvailability() {
+            given(bookingRepository.findBookedRoomIdsInRange(anyCollection(), any(OffsetDateTime.class), any(OffsetDateTime.class))).willReturn(List.of(bookedRoom));
+
+            AvailableRoomsDTO response = bookingService.searchAvailability(searchAvailabilityDTO);
+
+            verify(bookingRepository).findBookedRoomIdsInRange(
+                    argThat(ids -> ids.size() == 2 && ids.containsAll(List.of(freeRoom, bookedRoom))),
+                    eq(OffsetDateTime.parse(searchAvailabilityDTO.getCheckIn())),
+                    eq(OffsetDateTime.parse(searchAvailabilityDTO.getCheckOut()))
+            );
+            assertThat(response.getRoomIds()).containsExactly(freeRoom);
+            verifyNoInteractions(bookingIndex);
+        }
+
+        @Test
+        void errorWhenCheckInIsAfterCheckOut() {
+            searchAvailabilityDTO.setCheckIn(OffsetDateTime.now().plusDays(5).toString());
+
+            BadRequestException e = Assertions.assertThrows(BadRequestException.class, () -> {
+                bookingService.searchAvailability(searchAvailabilityDTO);
+            });
+
+            verify(bookingRepository, never()).findBookedRoomIdsInRange(any(), any(), any());
+            assertThat(e.getMessage()).contains("checkIn cannot be after checkOut");
+        }
+    }
+
+    @Nested
+    class FindRoomAvailability {
+        @Test
+        void findRoomAvailability() {
+            String roomId = UUID.randomUUID().toString();
+            LocalDate from = LocalDate.now(ZoneOffset.UTC).plusDays(1);
+            LocalDate to = from.plusDays(2);
+
+            given(roomAvailabilityCalendar.findAvailableDays(any(UUID.class), any(LocalDate.class), any(LocalDate.class))).willReturn(List.of(from, to));
+
+            RoomAvailabilityDTO response = bookingService.findRoomAvailability(roomId, from, to);
+
+            verify(roomAvailabilityCalendar).findAvailableDays(UUID.fromString(roomId), from, to);
+            assertThat(response.getAvailableDays()).containsExactly(from.toString(), to.toString());
+        }
+
+        @Test
+        void errorWhenFromIsAfterTo() {
+            LocalDate from = LocalDate.now(ZoneOffset.UTC).plusDays(5);
+
+            BadRequestException e = Assertions.assertThrows(BadRequestException.class, () -> {
+                bookingService.findRoomAvailability(UUID.randomUUID().toString(), from, from.minusDays(1));
+            });
+
+            verify(roomAvailabilityCalendar, never()).findAvailableDays(any(), any(), any());
+            assertThat(e.getMessage()).contains("from cannot be after to");
+        }
+
+        @Test
+        void errorWhenRangeIsTooLong() {
+            LocalDate from = LocalDate.now(ZoneOffset.UTC);
+
+            BadRequestException e = Assertions.assertThrows(BadRequestException.class, () -> {
+                bookingService.findRoomAvailability(UUID.randomUUID().toString(), from, from.plusYears(2));
+            });
+
+            verify(roomAvailabilityCalendar, never()).findAvailableDays(any(), any(), any());
+            assertThat(e.getMessage()).contains("cannot exceed");
+        }
+    }
+
     @Nested
     class UpdateStatus {
         @Test
@@ -272,17 +468,74 @@ class BookingServiceTest {
 
 
             given(bookingRepository.findById(any(UUID.class))).willReturn(Optional.of(bookingFound));
-            given(roomClient.findById(anyString())).willReturn(roomDTO);
-            given(bookingRepository.save(any(Booking.class))).willReturn(updatedBooking);
+            given(roomOwnershipService.findOwnerId(any(UUID.class), eq("updateStatus"))).willReturn(roomDTO.getOwnerId());
+            given(bookingRepository.saveAndFlush(any(Booking.class))).willReturn(updatedBooking);
 
             ResponseBookingDTO response = bookingService.updateStatus(idToFind, updateStatusDTO, roomDTO.getOwnerId());
 
             verify(bookingRepository).findById(UUID.fromString(idToFind));
-            verify(bookingRepository).save(bookingFound);
-            verify(bookingRepository).save(argThat(args -> args.getStatus().name().equals(updateStatusDTO.getStatus())));
+            verify(bookingRepository).saveAndFlush(bookingFound);
+            verify(bookingRepository).saveAndFlush(argThat(args -> args.getStatus().name().equals(updateStatusDTO.getStatus())));
             assertThat(response).isNotNull();
         }
 
+        @Test
+        void retriesWhenBookingWasModifiedConcurrently() {
+            String idToFind = UUID.randomUUID().toString();
+            UpdateStatusDTO updateStatusDTO = new UpdateStatusDTO(BookingStatus.CANCELLED.toString());
+            RoomDTO roomDTO = RoomDTO.builder().id(UUID.randomUUID()).ownerId(UUID.randomUUID().toString()).build();
+            Booking bookingFound = Booking.builder()
+                    .id(UUID.fromString(idToFind))
+                    .checkIn(OffsetDateTime.now())
+                    .checkOut(OffsetDateTime.now().plusDays(2))
+                    .roomId(UUID.randomUUID())
+                    .userId(UUID.randomUUID())
+                    .createdAt(OffsetDateTime.now())
+                    .status(BookingStatus.BOOKED)
+                    .version(1L)
+                    .build();
+
+            given(bookingRepository.findById(any(UUID.class))).willReturn(Optional.of(bookingFound));
+            given(roomOwnershipService.findOwnerId(any(UUID.class), eq("updateStatus"))).willReturn(roomDTO.getOwnerId());
+            given(bookingRepository.saveAndFlush(any(Booking.class)))
+                    .willThrow(new ObjectOptimisticLockingFailureException(Booking.class, idToFind))
+                    .willReturn(bookingFound);
+
+            ResponseBookingDTO response = bookingService.updateStatus(idToFind, updateStatusDTO, roomDTO.getOwnerId());
+
+            verify(bookingRepository, times(2)).findById(UUID.fromString(idToFind));
+            verify(bookingRepository, times(2)).saveAndFlush(bookingFound);
+            assertThat(response.getStatus()).isEqualTo(BookingStatus.CANCELLED);
+        }
+
+        @Test
+        void conflictWhenBookingKeepsBeingModifiedConcurrently() {
+            String idToFind = UUID.randomUUID().toString();
+            UpdateStatusDTO updateStatusDTO = new UpdateStatusDTO(BookingStatus.CANCELLED.toString());
+            String ownerId = UUID.randomUUID().toString();
+            Booking bookingFound = Booking.builder()
+                    .id(UUID.fromString(idToFind))
+                    .checkIn(OffsetDateTime.now())
+                    .checkOut(OffsetDateTime.now().plusDays(2))
+                    .roomId(UUID.randomUUID())
+                    .userId(UUID.randomUUID())
+                    .status(BookingStatus.BOOKED)
+                    .version(1L)
+                    .build();
+
+            given(bookingRepository.findById(any(UUID.class))).willReturn(Optional.of(bookingFound));
+            given(roomOwnershipService.findOwnerId(any(UUID.class), eq("updateStatus"))).willReturn(ownerId);
+            given(bookingRepository.saveAndFlush(any(Booking.class)))
+                    .willThrow(new ObjectOptimisticLockingFailureException(Booking.class, idToFind));
+
+            ConflictException e = Assertions.assertThrows(ConflictException.class, () -> {
+                bookingService.updateStatus(idToFind, updateStatusDTO, ownerId);
+            });
+
+            verify(bookingRepository, times(3)).saveAndFlush(bookingFound);
+            assertThat(e.getMessage()).contains("modified concurrently");
+        }
+
         @Test
         void errorWhenNotFoundBookingById() {
             String idToFind = UUID.randomUUID().toString();
@@ -295,7 +548,7 @@ class BookingServiceTest {
             });
 
             verify(bookingRepository).findById(UUID.fromString(idToFind));
-            verify(bookingRepository, never()).save(any());
+            verify(bookingRepository, never()).saveAndFlush(any());
             assertThat(e.getMessage()).contains("Not found booking with id");
         }
 
@@ -309,7 +562,7 @@ class BookingServiceTest {
             });
 
             verify(bookingRepository, never()).findById(UUID.fromString(idToFind));
-            verify(bookingRepository, never()).save(any());
+            verify(bookingRepository, never()).saveAndFlush(any());
             assertThat(e.getMessage()).contains("is not valid status");
         }
     }
@@ -352,6 +605,7 @@ class BookingServiceTest {
                     Objects.equals(args.getRating(), createReviewDTO.getRating()) &&
                             args.getReview().equals(createReviewDTO.getReview())
             ));
+            verify(outbox).add(eq(OutboxEventType.REVIEW_CREATED), eq(bookingFound.getId()), eq(bookingFound.getId().toString()), any(ResponseBookingDTO.class));
             assertThat(response).isNotNull();
         }
 
@@ -0,0 +1,106 @@
+package com.springcloud.demo.bookingsmicroservice.booking.service;
+
+import com.springcloud.demo.bookingsmicroservice.booking.dto.RoomUpdatedEventDTO;
+import com.springcloud.demo.bookingsmicroservice.booking.model.RoomOwner;
+import com.springcloud.demo.bookingsmicroservice.booking.repository.RoomOwnerRepository;
+import com.springcloud.demo.bookingsmicroservice.client.rooms.RoomClientImpl;
+import com.springcloud.demo.bookingsmicroservice.client.rooms.StaleRoomPolicy;
+import com.springcloud.demo.bookingsmicroservice.client.rooms.dto.RoomDTO;
+import jakarta.persistence.EntityManager;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.InjectMocks;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+import org.springframework.dao.DataIntegrityViolationException;
+import org.springframework.transaction.PlatformTransactionManager;
+
+import java.util.Optional;
+import java.util.UUID;
+
+import static org.assertj.core.api.Assertions.*;
+import static org.mockito.BDDMockito.*;
+
+@ExtendWith(MockitoExtension.class)
+class RoomOwnershipServiceTest {
+
+    @Mock
+    private RoomOwnerRepository roomOwnerRepository;
+
+    @Mock
+    private RoomClientImpl roomClient;
+
+    @Mock
+    private StaleRoomPolicy staleRoomPolicy;
+
+    @Mock
+    private EntityManager entityManager;
+
+    @Mock
+    private PlatformTransactionManager transactionManager;
+
+    @InjectMocks
+    private RoomOwnershipService roomOwnershipService;
+
+    UUID roomId = UUID.randomUUID();
+    String ownerId = UUID.randomUUID().toString();
+
+    @Test
+    void readsOwnerFromProjection() {
+        given(roomOwnerRepository.findById(roomId)).willReturn(Optional.of(new RoomOwner(roomId, ownerId, null)));
+
+        assertThat(roomOwnershipService.findOwnerId(roomId, "updateStatus")).isEqualTo(ownerId);
+
+        verify(roomClient, never()).findById(anyString());
+    }
+
+    @Test
+    void loadsAndStoresOwnerOnFirstRead() {
+        given(roomOwnerRepository.findById(roomId)).willReturn(Optional.empty());
+        given(roomClient.findById(roomId.toString())).willReturn(RoomDTO.builder().id(roomId).ownerId(ownerId).build());
+
+        assertThat(roomOwnershipService.findOwnerId(roomId, "updateStatus")).isEqualTo(ownerId);
+
+        verify(staleRoomPolicy).check(any(RoomDTO.class), eq("updateStatus"));
+        verify(entityManager).persist(argThat((RoomOwner owner) -> owner.getRoomId().equals(roomId) && owner.getOwnerId().equals(ownerId)));
+        verify(roomOwnerRepository, never()).save(any());
+    }
+
+    @Test
+    void keepsOwnerWrittenMeanwhileByConsumer() {
+        given(roomOwnerRepository.findById(roomId)).willReturn(Optional.empty());
+        given(roomClient.findById(roomId.toString())).willReturn(RoomDTO.builder().id(roomId).ownerId(ownerId).build());
+        willThrow(new DataIntegrityViolationException("duplicate key value violates unique constraint \"room_owners_pkey\""))
+                .given(transactionManager).commit(any());
+
+        assertThat(roomOwnershipService.findOwnerId(roomId, "updateStatus")).isEqualTo(ownerId);
+
+        verify(roomOwnerRepository, never()).save(any());
+    }
+
+    @Test
+    void doesNotStoreStaleRoom() {
+        RoomDTO staleRoom = RoomDTO.builder().id(roomId).ownerId(ownerId).build();
+        staleRoom.setStale(true);
+        given(roomOwnerRepository.findById(roomId)).willReturn(Optional.empty());
+        given(roomClient.findById(roomId.toString())).willReturn(staleRoom);
+
+        assertThat(roomOwnershipService.findOwnerId(roomId, "updateStatus")).isEqualTo(ownerId);
+
+        verify(entityManager, never()).persist(any());
+    }
+
+    @Test
+    void updatesOwnerFromRoomEvent() {
+        roomOwnershipService.update(new RoomUpdatedEventDTO(roomId, ownerId));
+
+        verify(roomOwnerRepository).save(argThat(owner -> owner.getRoomId().equals(roomId) && owner.getOwnerId().equals(ownerId)));
+    }
+
+    @Test
+    void skipsRoomEventWithoutOwner() {
+        roomOwnershipService.update(new RoomUpdatedEventDTO(roomId, null));
+
+        verify(roomOwnerRepository, never()).save(any());
+    }
+}
@@ -0,0 +1,95 @@
+package com.springcloud.demo.bookingsmicroservice.client;
+
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Test;
+
+import java.time.Duration;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.assertj.core.api.Assertions.*;
+
+class HedgerTest {
+
+    SimpleMeterRegistry meterRegistry = new SimpleMeterRegistry();
+    Hedger hedger;
+    CountDownLatch release = new CountDownLatch(1);
+
+    @AfterEach
+    void shutdown() {
+        release.countDown();
+        hedger.shutdown();
+    }
+
+    @Test
+    void hedgesSlowCallAndTakesFirstSuccess() {
+        hedger = new Hedger(meterRegistry, true, 0.95, Duration.ofMillis(10), 1, 10, 100);
+        warmUp();
+        AtomicInteger attempts = new AtomicInteger();
+
+        String result = hedger.execute("rooms", () -> {
+            if (attempts.incrementAndGet() == 1) {
+                await(release);
+                return "slow";
+            }
+            return "hedged";
+        });
+
+        assertThat(result).isEqualTo("hedged");
+        assertThat(counter("clients.hedges.issued")).isEqualTo(1);
+        assertThat(counter("clients.hedges.won")).isEqualTo(1);
+    }
+
+    @Test
+    void waitsForSlowCallWhenBudgetIsSpent() {
+        hedger = new Hedger(meterRegistry, true, 0.95, Duration.ofMillis(10), 0, 10, 100);
+        warmUp();
+        AtomicInteger attempts = new AtomicInteger();
+
+        String result = hedger.execute("rooms", () -> {
+            attempts.incrementAndGet();
+            sleep(50);
+            return "slow";
+        });
+
+        assertThat(result).isEqualTo("slow");
+        assertThat(attempts.get()).isEqualTo(1);
+    }
+
+    @Test
+    void callsOnceWhenDisabled() {
+        hedger = new Hedger(meterRegistry, false, 0.95, Duration.ZERO, 1, 10, 100);
+        AtomicInteger attempts = new AtomicInteger();
+
+        assertThat(hedger.execute("rooms", attempts::incrementAndGet)).isEqualTo(1);
+        assertThat(attempts.get()).isEqualTo(1);
+    }
+
+    private void warmUp() {
+        for (int i = 0; i < 50; i++) {
+            hedger.execute("rooms", () -> "fast");
+        }
+    }
+
+    private double counter(String name) {
+        return meterRegistry.get(name).tag("client", "rooms").counter().count();
+    }
+
+    private static void await(CountDownLatch latch) {
+        try {
+            latch.await(5, TimeUnit.SECONDS);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+    }
+
+    private static void sleep(long millis) {
+        try {
+            Thread.sleep(millis);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+    }
+}
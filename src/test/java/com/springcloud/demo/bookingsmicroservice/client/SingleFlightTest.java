@@ -0,0 +1,119 @@
+package com.springcloud.demo.bookingsmicroservice.client;
+
+import com.springcloud.demo.bookingsmicroservice.exceptions.ForbiddenException;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.Assertions;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.BooleanSupplier;
+
+import static org.assertj.core.api.Assertions.*;
+
+class SingleFlightTest {
+
+    SimpleMeterRegistry meterRegistry;
+    SingleFlight<String, String> singleFlight;
+
+    @BeforeEach
+    void setup() {
+        meterRegistry = new SimpleMeterRegistry();
+        singleFlight = new SingleFlight<>("rooms", meterRegistry);
+    }
+
+    @Test
+    void sharesInFlightCallBetweenConcurrentCallers() throws Exception {
+        AtomicInteger calls = new AtomicInteger();
+        CountDownLatch release = new CountDownLatch(1);
+
+        CompletableFuture<String> first = CompletableFuture.supplyAsync(() -> singleFlight.execute("room", key -> {
+            calls.incrementAndGet();
+            await(release);
+            return "result";
+        }));
+        waitUntil(() -> calls.get() == 1);
+
+        CompletableFuture<String> second = CompletableFuture.supplyAsync(() -> singleFlight.execute("room", key -> {
+            calls.incrementAndGet();
+            return "other";
+        }));
+        waitUntil(() -> collapsed() == 1);
+        release.countDown();
+
+        assertThat(first.get(5, TimeUnit.SECONDS)).isEqualTo("result");
+        assertThat(second.get(5, TimeUnit.SECONDS)).isEqualTo("result");
+        assertThat(calls.get()).isEqualTo(1);
+    }
+
+    @Test
+    void givesEachWaitingCallerItsOwnErrorCausedByTheSharedOne() throws Exception {
+        AtomicInteger calls = new AtomicInteger();
+        CountDownLatch release = new CountDownLatch(1);
+        ForbiddenException failure = new ForbiddenException("Rooms service not available. Try later");
+
+        CompletableFuture<String> first = CompletableFuture.supplyAsync(() -> singleFlight.execute("room", key -> {
+            calls.incrementAndGet();
+            await(release);
+            throw failure;
+        }));
+        waitUntil(() -> calls.get() == 1);
+
+        CompletableFuture<String> second = CompletableFuture.supplyAsync(() -> singleFlight.execute("room", key -> "other"));
+        CompletableFuture<String> third = CompletableFuture.supplyAsync(() -> singleFlight.execute("room", key -> "other"));
+        waitUntil(() -> collapsed() == 2);
+        release.countDown();
+
+        Throwable firstError = errorOf(first);
+        Throwable secondError = errorOf(second);
+        Throwable thirdError = errorOf(third);
+
+        assertThat(firstError).isSameAs(failure);
+        assertThat(secondError).isInstanceOf(SingleFlight.SharedCallException.class).hasCause(failure);
+        assertThat(thirdError).isInstanceOf(SingleFlight.SharedCallException.class).hasCause(failure);
+        assertThat(secondError).isNotSameAs(thirdError);
+        assertThat(SingleFlight.unwrap(secondError)).isSameAs(failure);
+        assertThat(calls.get()).isEqualTo(1);
+    }
+
+    @Test
+    void forgetsCallOnceFinished() {
+        ForbiddenException e = Assertions.assertThrows(ForbiddenException.class, () -> {
+            singleFlight.execute("room", key -> {
+                throw new ForbiddenException("Rooms service not available. Try later");
+            });
+        });
+
+        assertThat(e.getMessage()).isEqualTo("Rooms service not available. Try later");
+        assertThat(singleFlight.execute("room", key -> "fresh")).isEqualTo("fresh");
+        assertThat(collapsed()).isZero();
+    }
+
+    private double collapsed() {
+        return meterRegistry.get("clients.calls.collapsed").tag("client", "rooms").counter().count();
+    }
+
+    private static Throwable errorOf(CompletableFuture<String> future) {
+        ExecutionException e = Assertions.assertThrows(ExecutionException.class, () -> future.get(5, TimeUnit.SECONDS));
+        return e.getCause();
+    }
+
+    private static void await(CountDownLatch latch) {
+        try {
+            latch.await(5, TimeUnit.SECONDS);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+    }
+
+    private static void waitUntil(BooleanSupplier condition) {
+        long deadline = System.nanoTime() + TimeUnit.SECONDS.toNanos(5);
+        while (!condition.getAsBoolean() && System.nanoTime() < deadline) {
+            Thread.onSpinWait();
+        }
+    }
+}
@@ -0,0 +1,108 @@
+package com.springcloud.demo.bookingsmicroservice.client.loadbalancer;
+
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+import org.springframework.beans.factory.ObjectProvider;
+import org.springframework.cloud.client.DefaultServiceInstance;
+import org.springframework.cloud.client.ServiceInstance;
+import org.springframework.cloud.client.loadbalancer.*;
+import org.springframework.cloud.loadbalancer.core.ServiceInstanceListSupplier;
+import org.springframework.cloud.loadbalancer.support.ServiceInstanceListSuppliers;
+
+import java.time.Duration;
+import java.util.function.Supplier;
+
+import static org.assertj.core.api.Assertions.*;
+import static org.mockito.BDDMockito.*;
+
+@ExtendWith(MockitoExtension.class)
+class LatencyAwareLoadBalancerTest {
+
+    @Mock
+    private ObjectProvider<ServiceInstanceListSupplier> supplierProvider;
+
+    InstanceLoadTracker loadTracker;
+    LatencyAwareLoadBalancer loadBalancer;
+    ServiceInstance fast;
+    ServiceInstance slow;
+
+    @BeforeEach
+    void setup() {
+        fast = new DefaultServiceInstance("rooms-ms-1", "rooms-ms", "10.0.0.1", 8080, false);
+        slow = new DefaultServiceInstance("rooms-ms-2", "rooms-ms", "10.0.0.2", 8080, false);
+        loadTracker = new InstanceLoadTracker(0.3, Duration.ofSeconds(1));
+        loadBalancer = new LatencyAwareLoadBalancer(supplierProvider, loadTracker);
+    }
+
+    @Test
+    void prefersInstanceWithLowerLatency() {
+        givenInstances(fast, slow);
+        complete(fast, 5_000_000L);
+        complete(slow, 500_000_000L);
+
+        for (int i = 0; i < 20; i++) {
+            assertThat(choose()).isEqualTo(fast);
+        }
+    }
+
+    @Test
+    void prefersSlowerHealthyInstanceOverFastFailingOne() {
+        givenInstances(fast, slow);
+        for (int i = 0; i < 10; i++) {
+            complete(fast, 1_000_000L, true);
+            complete(slow, 50_000_000L, false);
+        }
+
+        for (int i = 0; i < 20; i++) {
+            assertThat(choose()).isEqualTo(slow);
+        }
+    }
+
+    @Test
+    void avoidsInstanceWithRequestsInFlight() {
+        givenInstances(fast, slow);
+        complete(fast, 10_000_000L);
+        complete(slow, 10_000_000L);
+        loadTracker.statsOf(fast).start();
+        loadTracker.statsOf(fast).start();
+
+        assertThat(choose()).isEqualTo(slow);
+    }
+
+    @Test
+    void tracksLoadThroughLifecycle() {
+        Request<RequestDataContext> request = new DefaultRequest<>(new RequestDataContext());
+        Response<ServiceInstance> response = new DefaultResponse(slow);
+
+        loadTracker.onStartRequest(request, response);
+        assertThat(loadTracker.statsOf(slow).getInFlight()).isEqualTo(1);
+
+        loadTracker.onComplete(new CompletionContext<>(CompletionContext.Status.FAILED, request, response));
+
+        InstanceStats stats = loadTracker.snapshot().get("rooms-ms").get("10.0.0.2:8080");
+        assertThat(stats.getInFlight()).isZero();
+        assertThat(stats.getRequests()).isEqualTo(1);
+        assertThat(stats.getFailures()).isEqualTo(1);
+    }
+
+    private void givenInstances(ServiceInstance... instances) {
+        given(supplierProvider.getIfAvailable(any(Supplier.class))).willReturn(ServiceInstanceListSuppliers.from("rooms-ms", instances));
+    }
+
+    private ServiceInstance choose() {
+        return loadBalancer.choose(new DefaultRequest<>()).block().getServer();
+    }
+
+    private void complete(ServiceInstance instance, long latencyNanos) {
+        complete(instance, latencyNanos, false);
+    }
+
+    private void complete(ServiceInstance instance, long latencyNanos, boolean failed) {
+        InstanceStats stats = loadTracker.statsOf(instance);
+        stats.start();
+        stats.complete(latencyNanos, failed);
+    }
+}
@@ -2,13 +2,22 @@ package com.springcloud.demo.bookingsmicroservice.client.rooms;
 
 import com.fasterxml.jackson.core.JsonProcessingException;
 import com.fasterxml.jackson.databind.ObjectMapper;
+import com.github.benmanes.caffeine.cache.Cache;
+import com.github.benmanes.caffeine.cache.Caffeine;
+import com.springcloud.demo.bookingsmicroservice.client.Hedger;
+import com.springcloud.demo.bookingsmicroservice.client.NotFoundCache;
+import com.springcloud.demo.bookingsmicroservice.client.SingleFlight;
 import com.springcloud.demo.bookingsmicroservice.client.rooms.RoomClient;
 import com.springcloud.demo.bookingsmicroservice.client.rooms.RoomClientImpl;
 import com.springcloud.demo.bookingsmicroservice.client.rooms.dto.RoomDTO;
+import com.springcloud.demo.bookingsmicroservice.client.users.UserDTO;
+import com.springcloud.demo.bookingsmicroservice.config.BookingLookupPool;
 import com.springcloud.demo.bookingsmicroservice.exceptions.ForbiddenException;
 import com.springcloud.demo.bookingsmicroservice.exceptions.InheritedException;
 import feign.FeignException;
 import feign.Request;
+import io.github.resilience4j.circuitbreaker.CircuitBreakerRegistry;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
 import static org.assertj.core.api.Assertions.*;
 
 import org.junit.jupiter.api.Assertions;
@@ -17,9 +26,12 @@ import org.junit.jupiter.api.Test;
 import org.junit.jupiter.api.extension.ExtendWith;
 import org.mockito.InjectMocks;
 import org.mockito.Mock;
+import org.mockito.Spy;
 import org.mockito.junit.jupiter.MockitoExtension;
 import org.springframework.boot.test.autoconfigure.web.servlet.AutoConfigureMockMvc;
+import org.springframework.core.task.SyncTaskExecutor;
 
+import java.time.Duration;
 import java.util.Map;
 import java.util.UUID;
 
@@ -32,6 +44,27 @@ class RoomClientImplTest {
     @Mock
     private RoomClient roomClient;
 
+    @Spy
+    private Cache<String, RoomDTO> roomCache = Caffeine.newBuilder().build();
+
+    @Spy
+    private SingleFlight<String, RoomDTO> roomLookups = new SingleFlight<>("rooms", new SimpleMeterRegistry());
+
+    @Spy
+    private NotFoundCache roomNotFoundCache = new NotFoundCache("rooms", new SimpleMeterRegistry(), Duration.ofSeconds(30), 100);
+
+    @Spy
+    private Hedger hedger = new Hedger(new SimpleMeterRegistry(), false, 0.95, Duration.ZERO, 0.05, 10, 100);
+
+    @Spy
+    private LastKnownRooms lastKnownRooms = new LastKnownRooms(new SimpleMeterRegistry(), Duration.ofHours(1), Duration.ZERO, 100);
+
+    @Spy
+    private BookingLookupPool bookingLookupPool = new BookingLookupPool(new SyncTaskExecutor());
+
+    @Spy
+    private CircuitBreakerRegistry circuitBreakerRegistry = CircuitBreakerRegistry.ofDefaults();
+
     @InjectMocks
     private RoomClientImpl roomClientImpl;
 
@@ -49,6 +82,24 @@ class RoomClientImplTest {
 
             assertThat(result).isEqualTo(roomDTO);
         }
+
+        @Test
+        void servesRepeatedLookupsFromCache() {
+            RoomDTO roomDTO = RoomDTO.builder()
+                    .id(UUID.randomUUID())
+                    .ownerId(UUID.randomUUID().toString())
+                    .build();
+
+            given(roomClient.findById(anyString())).willReturn(roomDTO);
+
+            RoomDTO first = roomClientImpl.findById(roomDTO.getId().toString());
+            first.setOwner(UserDTO.builder().id(UUID.randomUUID()).build());
+            RoomDTO second = roomClientImpl.findById(roomDTO.getId().toString());
+
+            verify(roomClient, times(1)).findById(roomDTO.getId().toString());
+            assertThat(second.getOwnerId()).isEqualTo(roomDTO.getOwnerId());
+            assertThat(second.getOwner()).isNull();
+        }
     }
 
     @Nested
@@ -63,6 +114,39 @@ class RoomClientImplTest {
             assertThat(response.getMessage()).isEqualTo("Rooms service not available. Try later");
         }
 
+        @Test
+        void servesLastKnownRoomWhenRoomsServiceIsDown() throws Exception {
+            RoomDTO roomDTO = RoomDTO.builder()
+                    .id(UUID.randomUUID())
+                    .ownerId(UUID.randomUUID().toString())
+                    .build();
+            String id = roomDTO.getId().toString();
+            lastKnownRooms.put(id, roomDTO);
+
+            given(roomClient.findById(id)).willThrow(new RuntimeException());
+
+            RoomDTO response = roomClientImpl.findRoomByIdFallback(id, new RuntimeException());
+
+            assertThat(response.isStale()).isTrue();
+            assertThat(response.getOwnerId()).isEqualTo(roomDTO.getOwnerId());
+            verify(roomClient).findById(id);
+        }
+
+        @Test
+        void doesNotRefreshLastKnownRoomWhileCircuitIsOpen() throws Exception {
+            RoomDTO roomDTO = RoomDTO.builder()
+                    .id(UUID.randomUUID())
+                    .build();
+            String id = roomDTO.getId().toString();
+            lastKnownRooms.put(id, roomDTO);
+            circuitBreakerRegistry.circuitBreaker("rooms-service").transitionToForcedOpenState();
+
+            RoomDTO response = roomClientImpl.findRoomByIdFallback(id, new RuntimeException());
+
+            assertThat(response.isStale()).isTrue();
+            verify(roomClient, never()).findById(anyString());
+        }
+
         @Test
         void whenReceiveClientExceptionFromUsersService() throws JsonProcessingException {
             Map body = Map.of("message", "Not found room with id");
@@ -77,5 +161,23 @@ class RoomClientImplTest {
 
             assertThat(response.getMessage()).isEqualTo(body.get("message"));
         }
+
+        @Test
+        void remembersNotFoundRoomWithoutCallingRoomsServiceAgain() throws JsonProcessingException {
+            String id = UUID.randomUUID().toString();
+            String bodyString = new ObjectMapper().writeValueAsString(Map.of("message", "Not found room with id"));
+
+            InheritedException first = Assertions.assertThrows(InheritedException.class, () -> {
+                roomClientImpl.findRoomByIdFallback(
+                        id,
+                        new FeignException.FeignClientException(404, null, mock(Request.class), bodyString.getBytes(), null)
+                );
+            });
+            InheritedException second = Assertions.assertThrows(InheritedException.class, () -> roomClientImpl.findById(id));
+
+            verify(roomClient, never()).findById(anyString());
+            assertThat(second).isSameAs(first);
+            assertThat(second.getStatus()).isEqualTo(404);
+        }
     }
-}
\ No newline at end of file
+}
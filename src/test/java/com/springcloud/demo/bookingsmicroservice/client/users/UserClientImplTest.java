@@ -0,0 +1,104 @@
+package com.springcloud.demo.bookingsmicroservice.client.users;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.github.benmanes.caffeine.cache.Caffeine;
+import com.springcloud.demo.bookingsmicroservice.client.Hedger;
+import com.springcloud.demo.bookingsmicroservice.client.NotFoundCache;
+import com.springcloud.demo.bookingsmicroservice.client.SingleFlight;
+import com.springcloud.demo.bookingsmicroservice.exceptions.ForbiddenException;
+import com.springcloud.demo.bookingsmicroservice.exceptions.InheritedException;
+import feign.FeignException;
+import feign.Request;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.Assertions;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Nested;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+
+import java.time.Duration;
+import java.util.Map;
+import java.util.UUID;
+
+import static org.assertj.core.api.Assertions.*;
+import static org.mockito.BDDMockito.*;
+
+@ExtendWith(MockitoExtension.class)
+class UserClientImplTest {
+
+    @Mock
+    private UserClient userClient;
+
+    private UserClientImpl userClientImpl;
+
+    @BeforeEach
+    void setup() {
+        userClientImpl = new UserClientImpl(
+                userClient,
+                Caffeine.newBuilder().build(userClient::findById),
+                new SingleFlight<>("users", new SimpleMeterRegistry()),
+                new NotFoundCache("users", new SimpleMeterRegistry(), Duration.ofSeconds(30), 100),
+                new Hedger(new SimpleMeterRegistry(), false, 0.95, Duration.ZERO, 0.05, 10, 100),
+                new UserLookupBatcher(userClient, false, Duration.ZERO, 1, 1, 1)
+        );
+    }
+
+    @Nested
+    class FindUserById {
+        @Test
+        void servesRepeatedLookupsFromCache() {
+            UserDTO userDTO = UserDTO.builder().id(UUID.randomUUID()).build();
+
+            given(userClient.findById(anyString())).willReturn(userDTO);
+
+            UserDTO first = userClientImpl.findById(userDTO.getId().toString());
+            UserDTO second = userClientImpl.findById(userDTO.getId().toString());
+
+            verify(userClient, times(1)).findById(userDTO.getId().toString());
+            assertThat(first).isEqualTo(userDTO);
+            assertThat(second).isEqualTo(userDTO);
+        }
+
+        @Test
+        void refreshReloadsCachedUser() {
+            UserDTO cached = UserDTO.builder().id(UUID.randomUUID()).build();
+            UserDTO reloaded = UserDTO.builder().id(cached.getId()).name("renamed").build();
+
+            given(userClient.findById(cached.getId().toString())).willReturn(cached).willReturn(reloaded);
+
+            userClientImpl.findById(cached.getId().toString());
+            UserDTO refreshed = userClientImpl.refresh(cached.getId().toString());
+
+            verify(userClient, times(2)).findById(cached.getId().toString());
+            assertThat(refreshed).isEqualTo(reloaded);
+        }
+    }
+
+    @Nested
+    class Fallback {
+        @Test
+        void whenCannotConnectToUsersService() {
+            ForbiddenException response = Assertions.assertThrows(ForbiddenException.class, () -> {
+                userClientImpl.findUserByIdFallback(UUID.randomUUID().toString(), new RuntimeException());
+            });
+
+            assertThat(response.getMessage()).isEqualTo("Users service not available. Try later");
+        }
+
+        @Test
+        void whenReceiveClientExceptionFromUsersService() throws Exception {
+            String body = new ObjectMapper().writeValueAsString(Map.of("message", "Not found user with id"));
+
+            InheritedException response = Assertions.assertThrows(InheritedException.class, () -> {
+                userClientImpl.findUserByIdFallback(
+                        UUID.randomUUID().toString(),
+                        new FeignException.FeignClientException(404, null, mock(Request.class), body.getBytes(), null)
+                );
+            });
+
+            assertThat(response.getMessage()).isEqualTo("Not found user with id");
+        }
+    }
+}
@@ -0,0 +1,103 @@
+package com.springcloud.demo.bookingsmicroservice.client.users;
+
+import feign.FeignException;
+import feign.Request;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+
+import java.time.Duration;
+import java.util.List;
+import java.util.UUID;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+
+import static org.assertj.core.api.Assertions.*;
+import static org.mockito.BDDMockito.*;
+
+@ExtendWith(MockitoExtension.class)
+class UserLookupBatcherTest {
+
+    @Mock
+    private UserClient userClient;
+
+    UserLookupBatcher batcher;
+
+    @AfterEach
+    void shutdown() {
+        batcher.shutdown();
+    }
+
+    @Test
+    void resolvesConcurrentLookupsWithOneBatchCall() throws Exception {
+        batcher = new UserLookupBatcher(userClient, true, Duration.ofSeconds(5), 2, 2, 4);
+        UserDTO booker = UserDTO.builder().id(UUID.randomUUID()).build();
+        UserDTO owner = UserDTO.builder().id(UUID.randomUUID()).build();
+
+        given(userClient.findByIds(anyList())).willReturn(List.of(owner, booker));
+
+        CompletableFuture<UserDTO> first = CompletableFuture.supplyAsync(() -> batcher.load(booker.getId().toString()));
+        CompletableFuture<UserDTO> second = CompletableFuture.supplyAsync(() -> batcher.load(owner.getId().toString()));
+
+        assertThat(first.get(5, TimeUnit.SECONDS)).isEqualTo(booker);
+        assertThat(second.get(5, TimeUnit.SECONDS)).isEqualTo(owner);
+        verify(userClient).findByIds(argThat(ids -> ids.size() == 2));
+        verify(userClient, never()).findById(anyString());
+    }
+
+    @Test
+    void flushesPartialBatchAfterWindow() {
+        batcher = new UserLookupBatcher(userClient, true, Duration.ofMillis(5), 50, 2, 4);
+        UserDTO user = UserDTO.builder().id(UUID.randomUUID()).build();
+
+        given(userClient.findByIds(List.of(user.getId().toString()))).willReturn(List.of(user));
+
+        assertThat(batcher.load(user.getId().toString())).isEqualTo(user);
+    }
+
+    @Test
+    void runsBatchCallsConcurrently() throws Exception {
+        batcher = new UserLookupBatcher(userClient, true, Duration.ofMillis(1), 1, 2, 4);
+        CountDownLatch bothInFlight = new CountDownLatch(2);
+        given(userClient.findByIds(anyList())).willAnswer(invocation -> {
+            bothInFlight.countDown();
+            bothInFlight.await(5, TimeUnit.SECONDS);
+            return List.of(UserDTO.builder().id(UUID.fromString(invocation.<List<String>>getArgument(0).get(0))).build());
+        });
+
+        CompletableFuture<UserDTO> first = CompletableFuture.supplyAsync(() -> batcher.load(UUID.randomUUID().toString()));
+        CompletableFuture<UserDTO> second = CompletableFuture.supplyAsync(() -> batcher.load(UUID.randomUUID().toString()));
+
+        assertThat(first.get(5, TimeUnit.SECONDS)).isNotNull();
+        assertThat(second.get(5, TimeUnit.SECONDS)).isNotNull();
+        assertThat(bothInFlight.getCount()).isZero();
+    }
+
+    @Test
+    void loadsMissingIdsOneByOne() {
+        batcher = new UserLookupBatcher(userClient, true, Duration.ofMillis(5), 1, 2, 4);
+        String id = UUID.randomUUID().toString();
+
+        given(userClient.findByIds(anyList())).willReturn(List.of());
+        given(userClient.findById(id)).willThrow(new FeignException.FeignClientException(404, "Not Found", mock(Request.class), null, null));
+
+        assertThatThrownBy(() -> batcher.load(id)).isInstanceOf(FeignException.FeignClientException.class);
+    }
+
+    @Test
+    void fallsBackToSingleLookupsWhenBatchEndpointIsMissing() {
+        batcher = new UserLookupBatcher(userClient, true, Duration.ofMillis(5), 1, 2, 4);
+        UserDTO user = UserDTO.builder().id(UUID.randomUUID()).build();
+
+        given(userClient.findByIds(anyList())).willThrow(new FeignException.FeignClientException(404, "Not Found", mock(Request.class), null, null));
+        given(userClient.findById(anyString())).willReturn(user);
+
+        assertThat(batcher.load(user.getId().toString())).isEqualTo(user);
+        assertThat(batcher.load(UUID.randomUUID().toString())).isEqualTo(user);
+        verify(userClient, times(1)).findByIds(anyList());
+        verify(userClient, times(2)).findById(anyString());
+    }
+}
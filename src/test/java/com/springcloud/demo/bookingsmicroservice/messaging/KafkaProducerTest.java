@@ -0,0 +1,148 @@
+package com.springcloud.demo.bookingsmicroservice.messaging;
+
+import com.springcloud.demo.bookingsmicroservice.booking.dto.ResponseBookingDTO;
+import com.springcloud.demo.bookingsmicroservice.messaging.codec.BinaryEventCodec;
+import com.springcloud.demo.bookingsmicroservice.messaging.codec.EventCodecs;
+import com.springcloud.demo.bookingsmicroservice.messaging.codec.JsonEventCodec;
+import com.springcloud.demo.bookingsmicroservice.messaging.spool.DiskSpool;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.apache.kafka.clients.producer.ProducerRecord;
+import org.apache.kafka.clients.producer.RecordMetadata;
+import org.apache.kafka.common.TopicPartition;
+import org.apache.kafka.common.errors.RecordTooLargeException;
+import org.apache.kafka.common.errors.TimeoutException;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Nested;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.junit.jupiter.api.io.TempDir;
+import org.mockito.ArgumentCaptor;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+import org.springframework.beans.factory.ObjectProvider;
+import org.springframework.kafka.core.KafkaTemplate;
+import org.springframework.kafka.support.SendResult;
+import org.springframework.mock.env.MockEnvironment;
+
+import java.io.IOException;
+import java.nio.file.Path;
+import java.util.List;
+import java.util.UUID;
+import java.util.concurrent.CompletableFuture;
+
+import static org.assertj.core.api.Assertions.*;
+import static org.mockito.BDDMockito.*;
+
+@ExtendWith(MockitoExtension.class)
+class KafkaProducerTest {
+
+    @Mock
+    private KafkaTemplate<String, byte[]> kafkaTemplate;
+
+    @Mock
+    private ObjectProvider<DiskSpool> spoolProvider;
+
+    @TempDir
+    Path spoolDirectory;
+
+    SimpleMeterRegistry meterRegistry;
+    EventCodecs eventCodecs;
+    KafkaProducer kafkaProducer;
+    ResponseBookingDTO event;
+
+    @BeforeEach
+    void setup() {
+        MockEnvironment environment = new MockEnvironment().withProperty("messaging.encoding.binary-topic", "binary");
+        eventCodecs = new EventCodecs(environment, List.of(new JsonEventCodec(), new BinaryEventCodec()));
+        meterRegistry = new SimpleMeterRegistry();
+        kafkaProducer = new KafkaProducer(kafkaTemplate, eventCodecs, meterRegistry, spoolProvider);
+        event = ResponseBookingDTO.builder().id(UUID.randomUUID()).review("review").build();
+    }
+
+    @Test
+    void completesWhenBrokerAcknowledges() {
+        given(kafkaTemplate.send(any(ProducerRecord.class))).willReturn(acknowledged("topic1", 42));
+
+        assertThat(kafkaProducer.sendMessage("topic1", "key", event)).isCompleted();
+
+        assertThat(meterRegistry.get("messaging.send.latency").tag("topic", "topic1").tag("outcome", "success").timer().count()).isEqualTo(1);
+        assertThat(meterRegistry.get("messaging.record.size").tag("topic", "topic1").summary().totalAmount()).isEqualTo(42);
+    }
+
+    @Test
+    @SuppressWarnings("unchecked")
+    void encodesWithTopicCodecAndVersionHeaders() {
+        ArgumentCaptor<ProducerRecord<String, byte[]>> record = ArgumentCaptor.forClass(ProducerRecord.class);
+        given(kafkaTemplate.send(record.capture())).willReturn(acknowledged("binary-topic", 10));
+
+        kafkaProducer.sendMessage("binary-topic", "key", event);
+
+        assertThat(record.getValue().key()).isEqualTo("key");
+        assertThat(new String(record.getValue().headers().lastHeader(KafkaProducer.CONTENT_TYPE_HEADER).value())).isEqualTo(new BinaryEventCodec().contentType());
+        assertThat(new String(record.getValue().headers().lastHeader(KafkaProducer.SCHEMA_VERSION_HEADER).value())).isEqualTo("1");
+        assertThat(new BinaryEventCodec().decode(record.getValue().value(), ResponseBookingDTO.class)).isEqualTo(event);
+    }
+
+    @Test
+    void failsWhenSendFails() {
+        given(kafkaTemplate.send(any(ProducerRecord.class))).willReturn(CompletableFuture.failedFuture(new TimeoutException("expired")));
+
+        assertThat(kafkaProducer.sendMessage("topic1", "key", event)).isCompletedExceptionally();
+
+        assertThat(meterRegistry.get("messaging.send.errors").tag("exception", "TimeoutException").counter().count()).isEqualTo(1);
+    }
+
+    private static CompletableFuture<SendResult<String, byte[]>> acknowledged(String topic, int size) {
+        RecordMetadata metadata = new RecordMetadata(new TopicPartition(topic, 0), 0, 0, 0, 0, size);
+        return CompletableFuture.completedFuture(new SendResult<>(new ProducerRecord<>(topic, new byte[size]), metadata));
+    }
+
+    @Nested
+    class Spooling {
+
+        DiskSpool spool;
+
+        @BeforeEach
+        void setup() throws IOException {
+            spool = new DiskSpool(spoolDirectory, 4096, 2);
+            given(spoolProvider.getIfAvailable()).willReturn(spool);
+            kafkaProducer = new KafkaProducer(kafkaTemplate, eventCodecs, meterRegistry, spoolProvider);
+        }
+
+        @AfterEach
+        void tearDown() throws IOException {
+            spool.close();
+        }
+
+        @Test
+        void spoolsWhenBrokerIsUnavailable() {
+            given(kafkaTemplate.send(any(ProducerRecord.class))).willReturn(CompletableFuture.failedFuture(new TimeoutException("metadata not available")));
+
+            assertThat(kafkaProducer.sendMessage("topic1", "key", event)).isCompleted();
+
+            assertThat(spool.size()).isEqualTo(1);
+            assertThat(spool.peek(1).get(0).record().key()).isEqualTo("key");
+        }
+
+        @Test
+        void queuesBehindSpooledRecords() {
+            given(kafkaTemplate.send(any(ProducerRecord.class))).willReturn(CompletableFuture.failedFuture(new TimeoutException("metadata not available")));
+            kafkaProducer.sendMessage("topic1", "first", event);
+
+            assertThat(kafkaProducer.sendMessage("topic1", "second", event)).isCompleted();
+
+            verify(kafkaTemplate, times(1)).send(any(ProducerRecord.class));
+            assertThat(spool.peek(2)).extracting(spooled -> spooled.record().key()).containsExactly("first", "second");
+        }
+
+        @Test
+        void failsOnNonRetriableErrors() {
+            given(kafkaTemplate.send(any(ProducerRecord.class))).willReturn(CompletableFuture.failedFuture(new RecordTooLargeException("too large")));
+
+            assertThat(kafkaProducer.sendMessage("topic1", "key", event)).isCompletedExceptionally();
+
+            assertThat(spool.isEmpty()).isTrue();
+        }
+    }
+}
@@ -0,0 +1,104 @@
+package com.springcloud.demo.bookingsmicroservice.messaging.codec;
+
+import com.springcloud.demo.bookingsmicroservice.booking.dto.PublishBookingEventDTO;
+import com.springcloud.demo.bookingsmicroservice.booking.dto.ResponseBookingDTO;
+import com.springcloud.demo.bookingsmicroservice.booking.model.BookingStatus;
+import com.springcloud.demo.bookingsmicroservice.client.rooms.dto.RoomDTO;
+import com.springcloud.demo.bookingsmicroservice.client.users.UserDTO;
+import org.junit.jupiter.api.Test;
+
+import java.time.OffsetDateTime;
+import java.util.List;
+import java.util.UUID;
+
+import static org.assertj.core.api.Assertions.*;
+
+class BinaryEventCodecTest {
+
+    BinaryEventCodec codec = new BinaryEventCodec();
+
+    @Test
+    void roundTripsBookingCreatedEvent() {
+        PublishBookingEventDTO event = bookingCreated();
+
+        PublishBookingEventDTO decoded = codec.decode(codec.encode(event), PublishBookingEventDTO.class);
+
+        assertThat(decoded).isEqualTo(event);
+    }
+
+    @Test
+    void keepsNullsAndNegativeNumbers() {
+        PublishBookingEventDTO event = bookingCreated();
+        event.setReview(null);
+        event.getRoom().setFloor(-2);
+        event.getRoom().setOwner(null);
+
+        PublishBookingEventDTO decoded = codec.decode(codec.encode(event), PublishBookingEventDTO.class);
+
+        assertThat(decoded).isEqualTo(event);
+    }
+
+    @Test
+    void isSmallerThanJson() {
+        PublishBookingEventDTO event = bookingCreated();
+
+        assertThat(codec.encode(event).length).isLessThan(new JsonEventCodec().encode(event).length * 7 / 10);
+    }
+
+    @Test
+    void readsPayloadsWrittenBeforeFieldsWereAppended() {
+        ResponseBookingDTO booking = ResponseBookingDTO.builder().id(UUID.randomUUID()).rating(4).review("Nice").build();
+        EventSchema previous = new EventSchema("Booking", 0, EventSchemas.BOOKING.fields().subList(0, 8));
+
+        ResponseBookingDTO decoded = codec.decode(codec.encode(booking, previous), ResponseBookingDTO.class);
+
+        assertThat(decoded.getId()).isEqualTo(booking.getId());
+        assertThat(decoded.getRating()).isNull();
+        assertThat(decoded.getReview()).isNull();
+    }
+
+    @Test
+    void decodesWithSchemaVersionOfThePayload() {
+        PublishBookingEventDTO event = bookingCreated();
+
+        assertThat(codec.decode(codec.encode(event), PublishBookingEventDTO.class, 1)).isEqualTo(event);
+        assertThat(EventSchemas.forVersion("BookingCreated", 1)).contains(EventSchemas.BOOKING_CREATED);
+        assertThat(EventSchemas.forVersion("BookingCreated", 9)).contains(EventSchemas.BOOKING_CREATED);
+        assertThat(EventSchemas.forVersion("BookingCreated", 0)).isEmpty();
+    }
+
+    @Test
+    void rejectsTypesWithoutSchema() {
+        assertThatThrownBy(() -> codec.encode(new UserDTO())).isInstanceOf(IllegalArgumentException.class);
+    }
+
+    private static PublishBookingEventDTO bookingCreated() {
+        UserDTO owner = UserDTO.builder().id(UUID.randomUUID()).email("owner@mail.com").name("Owner").build();
+        RoomDTO room = RoomDTO.builder()
+                .id(UUID.randomUUID())
+                .num(101)
+                .name("Suite")
+                .floor(1)
+                .maxCapacity(2)
+                .description("Sea view")
+                .ownerId(owner.getId().toString())
+                .images(List.of("https://images/1.png", "https://images/2.png"))
+                .simpleBeds(0)
+                .mediumBeds(0)
+                .doubleBeds(1)
+                .owner(owner)
+                .build();
+
+        return PublishBookingEventDTO.builder()
+                .id(UUID.randomUUID())
+                .createdAt(OffsetDateTime.now().toString())
+                .checkIn(OffsetDateTime.now().plusDays(1).toString())
+                .checkOut(OffsetDateTime.now().plusDays(3).toString())
+                .status(BookingStatus.BOOKED)
+                .rating(5)
+                .review("Great")
+                .user(UserDTO.builder().id(UUID.randomUUID()).email("guest@mail.com").name("Guest").build())
+                .room(room)
+                .build();
+    }
+}
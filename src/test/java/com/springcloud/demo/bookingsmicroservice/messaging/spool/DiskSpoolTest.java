@@ -0,0 +1,123 @@
+package com.springcloud.demo.bookingsmicroservice.messaging.spool;
+
+import org.apache.kafka.clients.producer.ProducerRecord;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.List;
+import java.util.stream.Stream;
+
+import static org.assertj.core.api.Assertions.*;
+
+class DiskSpoolTest {
+
+    @TempDir
+    Path directory;
+
+    DiskSpool spool;
+
+    @BeforeEach
+    void setup() throws IOException {
+        spool = new DiskSpool(directory, 256, 3);
+    }
+
+    @AfterEach
+    void tearDown() throws IOException {
+        spool.close();
+    }
+
+    @Test
+    void readsRecordsInAppendOrder() {
+        ProducerRecord<String, byte[]> first = record("room-1", "first");
+        first.headers().add("schema-version", "1".getBytes(StandardCharsets.UTF_8));
+        spool.append(first);
+        spool.append(record(null, "second"));
+
+        List<DiskSpool.SpooledRecord> pending = spool.peek(10);
+
+        assertThat(pending).extracting(spooled -> new String(spooled.record().value(), StandardCharsets.UTF_8)).containsExactly("first", "second");
+        assertThat(pending.get(0).record().key()).isEqualTo("room-1");
+        assertThat(pending.get(0).record().headers().lastHeader("schema-version").value()).isEqualTo("1".getBytes(StandardCharsets.UTF_8));
+        assertThat(pending.get(1).record().key()).isNull();
+    }
+
+    @Test
+    void skipsReplayedRecords() {
+        spool.append(record("key", "first"));
+        spool.append(record("key", "second"));
+
+        spool.markReplayed(spool.peek(1).get(0));
+
+        assertThat(spool.size()).isEqualTo(1);
+        assertThat(spool.peek(10)).extracting(spooled -> new String(spooled.record().value(), StandardCharsets.UTF_8)).containsExactly("second");
+    }
+
+    @Test
+    void keepsPendingRecordsAcrossRestarts() throws IOException {
+        spool.append(record("key", "first"));
+        spool.append(record("key", "second"));
+        spool.markReplayed(spool.peek(1).get(0));
+        spool.close();
+
+        spool = new DiskSpool(directory, 256, 3);
+
+        assertThat(spool.size()).isEqualTo(1);
+        assertThat(spool.peek(10)).extracting(spooled -> new String(spooled.record().value(), StandardCharsets.UTF_8)).containsExactly("second");
+    }
+
+    @Test
+    void rollsSegmentsAndRejectsWhenFull() throws IOException {
+        int appended = 0;
+        while (spool.append(record("key", "x".repeat(100)))) {
+            appended++;
+        }
+
+        assertThat(appended).isGreaterThan(3);
+        assertThat(segmentFiles()).isEqualTo(3);
+        assertThat(spool.append(record("key", "x".repeat(300)))).isFalse();
+    }
+
+    @Test
+    void deletesFullyReplayedSegments() throws IOException {
+        for (int i = 0; i < 4; i++) {
+            spool.append(record("key", "x".repeat(100)));
+        }
+        assertThat(segmentFiles()).isEqualTo(2);
+
+        spool.peek(10).forEach(spool::markReplayed);
+
+        assertThat(spool.isEmpty()).isTrue();
+        assertThat(segmentFiles()).isEqualTo(1);
+    }
+
+    @Test
+    void movesDeadLettersOutOfTheSpool() throws IOException {
+        spool.append(record("key", "first"));
+        spool.append(record("key", "second"));
+
+        assertThat(spool.deadLetter(spool.peek(1).get(0))).isTrue();
+
+        assertThat(spool.peek(10)).extracting(spooled -> new String(spooled.record().value(), StandardCharsets.UTF_8)).containsExactly("second");
+        spool.close();
+        try (DiskSpool deadLetters = new DiskSpool(directory.resolve("dead-letter"), 256, 3)) {
+            assertThat(deadLetters.peek(10)).extracting(spooled -> new String(spooled.record().value(), StandardCharsets.UTF_8)).containsExactly("first");
+        }
+        spool = new DiskSpool(directory, 256, 3);
+    }
+
+    private long segmentFiles() throws IOException {
+        try (Stream<Path> files = Files.list(directory)) {
+            return files.count();
+        }
+    }
+
+    private static ProducerRecord<String, byte[]> record(String key, String value) {
+        return new ProducerRecord<>("topic1", key, value.getBytes(StandardCharsets.UTF_8));
+    }
+}
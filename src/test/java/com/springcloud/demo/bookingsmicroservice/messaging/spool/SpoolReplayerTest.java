@@ -0,0 +1,128 @@
+package com.springcloud.demo.bookingsmicroservice.messaging.spool;
+
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.apache.kafka.clients.producer.ProducerRecord;
+import org.apache.kafka.clients.producer.RecordMetadata;
+import org.apache.kafka.common.TopicPartition;
+import org.apache.kafka.common.errors.RecordTooLargeException;
+import org.apache.kafka.common.errors.TimeoutException;
+import org.apache.kafka.common.errors.UnknownTopicOrPartitionException;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.junit.jupiter.api.io.TempDir;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+import org.springframework.kafka.core.KafkaTemplate;
+import org.springframework.kafka.support.SendResult;
+
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Path;
+import java.time.Duration;
+import java.util.concurrent.CompletableFuture;
+
+import static org.assertj.core.api.Assertions.*;
+import static org.mockito.BDDMockito.*;
+
+@ExtendWith(MockitoExtension.class)
+class SpoolReplayerTest {
+
+    @Mock
+    private KafkaTemplate<String, byte[]> kafkaTemplate;
+
+    @TempDir
+    Path directory;
+
+    DiskSpool spool;
+    SimpleMeterRegistry meterRegistry;
+    SpoolReplayer replayer;
+
+    @BeforeEach
+    void setup() throws IOException {
+        meterRegistry = new SimpleMeterRegistry();
+        spool = new DiskSpool(directory, 4096, 2);
+        replayer = new SpoolReplayer(kafkaTemplate, spool, meterRegistry, 10, 2, Duration.ofSeconds(1));
+        spool.append(record("first"));
+        spool.append(record("second"));
+    }
+
+    @AfterEach
+    void tearDown() throws IOException {
+        spool.close();
+    }
+
+    @Test
+    void drainsSpoolInOrder() {
+        given(kafkaTemplate.send(any(ProducerRecord.class))).willReturn(acknowledged());
+
+        replayer.replay();
+
+        verify(kafkaTemplate).send(argThat((ProducerRecord<String, byte[]> record) -> record.key().equals("first")));
+        verify(kafkaTemplate).send(argThat((ProducerRecord<String, byte[]> record) -> record.key().equals("second")));
+        assertThat(spool.isEmpty()).isTrue();
+    }
+
+    @Test
+    void keepsRecordsFromFirstUnacknowledged() {
+        given(kafkaTemplate.send(any(ProducerRecord.class)))
+                .willReturn(acknowledged())
+                .willReturn(CompletableFuture.failedFuture(new TimeoutException("broker down")));
+
+        replayer.replay();
+
+        assertThat(spool.peek(10)).extracting(spooled -> spooled.record().key()).containsExactly("second");
+    }
+
+    @Test
+    void deadLettersRecordsTheBrokerRejects() throws IOException {
+        given(kafkaTemplate.send(any(ProducerRecord.class)))
+                .willReturn(CompletableFuture.failedFuture(new RecordTooLargeException("too large")))
+                .willReturn(acknowledged());
+
+        replayer.replay();
+
+        assertThat(spool.isEmpty()).isTrue();
+        assertThat(meterRegistry.get("messaging.spool.dead-lettered").counter().count()).isEqualTo(1);
+        try (DiskSpool deadLetters = new DiskSpool(directory.resolve("dead-letter"), 4096, 2)) {
+            assertThat(deadLetters.peek(10)).extracting(spooled -> spooled.record().key()).containsExactly("first");
+        }
+    }
+
+    @Test
+    void deadLettersRecordFailingWhileLaterOnesAreAcknowledged() {
+        given(kafkaTemplate.send(any(ProducerRecord.class))).willAnswer(invocation ->
+                invocation.<ProducerRecord<String, byte[]>>getArgument(0).key().equals("first")
+                        ? CompletableFuture.failedFuture(new UnknownTopicOrPartitionException("topic deleted"))
+                        : acknowledged());
+
+        replayer.replay();
+        assertThat(spool.size()).isEqualTo(2);
+
+        replayer.replay();
+        assertThat(spool.isEmpty()).isTrue();
+        assertThat(meterRegistry.get("messaging.spool.dead-lettered").counter().count()).isEqualTo(1);
+    }
+
+    @Test
+    void keepsRecordsWhileBrokerIsDown() {
+        given(kafkaTemplate.send(any(ProducerRecord.class))).willReturn(CompletableFuture.failedFuture(new TimeoutException("broker down")));
+
+        for (int i = 0; i < 5; i++) {
+            replayer.replay();
+        }
+
+        assertThat(spool.size()).isEqualTo(2);
+        assertThat(meterRegistry.get("messaging.spool.dead-lettered").counter().count()).isZero();
+    }
+
+    private static ProducerRecord<String, byte[]> record(String key) {
+        return new ProducerRecord<>("topic1", key, key.getBytes(StandardCharsets.UTF_8));
+    }
+
+    private static CompletableFuture<SendResult<String, byte[]>> acknowledged() {
+        RecordMetadata metadata = new RecordMetadata(new TopicPartition("topic1", 0), 0, 0, 0, 0, 1);
+        return CompletableFuture.completedFuture(new SendResult<>(new ProducerRecord<>("topic1", new byte[1]), metadata));
+    }
+}